@@ -0,0 +1,261 @@
+package lld.machinecoding.customhashmap;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomHashMap engines vs the JDK maps.
+ *
+ *   mvn -Pbenchmarks package
+ *   java -jar target/benchmarks.jar CustomHashMapBenchmark -p size=1000,100000
+ *
+ * Every map is pre-filled with {@code size} keys drawn from {@code distribution};
+ * misses come from a disjoint key set of the same shape. {@code remove} removes a
+ * present key and puts it back so the map stays at {@code size}; subtract
+ * {@code update} to isolate the remove cost. {@code growShrinkCycle} fills an
+ * empty map to {@code size} and drains it again, timing every resize.
+ *
+ * The legacy hash is measured separately by {@link CustomHashMapCollisionBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomHashMapBenchmark {
+
+    private static final String VALUE = "value";
+
+    public enum Impl {
+        CUSTOM_CHAINING, CUSTOM_OPEN_ADDRESSING, CUSTOM_OFF_HEAP, CUSTOM_CONCURRENT, HASH_MAP, CONCURRENT_HASH_MAP
+    }
+
+    /** The three operations every map under test shares. */
+    interface MapOps {
+        void put(String key, String value);
+        String get(String key);
+        String remove(String key);
+    }
+
+    public enum Distribution {
+        /** Random a-z keys of length 8..16. */
+        RANDOM,
+        /** Groups of 64 permutations of one word; each group collides under the legacy hash. */
+        ANAGRAM,
+        /** Base-26 counter rendered as a-z, e.g. "aaaab", "aaaac" ... */
+        SEQUENTIAL
+    }
+
+    @Param({"CUSTOM_CHAINING", "CUSTOM_OPEN_ADDRESSING", "CUSTOM_OFF_HEAP", "CUSTOM_CONCURRENT",
+            "HASH_MAP", "CONCURRENT_HASH_MAP"})
+    public Impl impl;
+
+    @Param({"RANDOM", "ANAGRAM", "SEQUENTIAL"})
+    public Distribution distribution;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private String[] keys;
+    private String[] missingKeys;
+    private MapOps map;
+    private MapOps scratch;
+    private int cursor;
+    private int scratchCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] all = generateKeys(distribution, size * 2, new Random(42));
+        keys = new String[size];
+        missingKeys = new String[size];
+        System.arraycopy(all, 0, keys, 0, size);
+        System.arraycopy(all, size, missingKeys, 0, size);
+        shuffle(keys, new Random(7));
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        map = newMap(impl);
+        for (String key : keys) {
+            map.put(key, VALUE);
+        }
+        scratch = newMap(impl);
+        cursor = 0;
+        scratchCursor = 0;
+    }
+
+    @Benchmark
+    public String getHit() {
+        return map.get(keys[next()]);
+    }
+
+    @Benchmark
+    public String getMiss() {
+        return map.get(missingKeys[next()]);
+    }
+
+    @Benchmark
+    public void putNew() {
+        if (scratchCursor == size) {
+            scratch = newMap(impl);   // amortized over size inserts
+            scratchCursor = 0;
+        }
+        scratch.put(keys[scratchCursor++], VALUE);
+    }
+
+    @Benchmark
+    public void update() {
+        map.put(keys[next()], VALUE);
+    }
+
+    @Benchmark
+    public void remove(Blackhole bh) {
+        String key = keys[next()];
+        bh.consume(map.remove(key));
+        map.put(key, VALUE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int growShrinkCycle() {
+        MapOps cycle = newMap(impl);
+        for (String key : keys) {
+            cycle.put(key, VALUE);
+        }
+        int removed = 0;
+        for (String key : keys) {
+            removed += cycle.remove(key).length();
+        }
+        return removed;
+    }
+
+    private int next() {
+        int i = cursor++;
+        if (cursor == size) cursor = 0;
+        return i;
+    }
+
+    // ---------------- Fixtures ----------------
+
+    static MapOps newMap(Impl impl) {
+        switch (impl) {
+            case CUSTOM_CHAINING:
+                return custom(new CustomHashMap.Builder(0.25, 0.75).engine(CustomHashMap.Engine.CHAINING).build());
+            case CUSTOM_OPEN_ADDRESSING:
+                return custom(new CustomHashMap.Builder(0.25, 0.75).engine(CustomHashMap.Engine.OPEN_ADDRESSING).build());
+            case CUSTOM_OFF_HEAP:
+                return custom(new CustomHashMap.Builder(0.25, 0.75).engine(CustomHashMap.Engine.OFF_HEAP).build());
+            case CUSTOM_CONCURRENT: {
+                ConcurrentCustomHashMap m = new ConcurrentCustomHashMap(0.25, 0.75);
+                return new MapOps() {
+                    public void put(String key, String value) { m.put(key, value); }
+                    public String get(String key) { return m.get(key); }
+                    public String remove(String key) { return m.remove(key); }
+                };
+            }
+            case HASH_MAP:
+                return jdk(new HashMap<>());
+            case CONCURRENT_HASH_MAP:
+                return jdk(new ConcurrentHashMap<>());
+            default:
+                throw new IllegalArgumentException("Unknown impl: " + impl);
+        }
+    }
+
+    private static MapOps custom(CustomHashMap m) {
+        return new MapOps() {
+            public void put(String key, String value) { m.put(key, value); }
+            public String get(String key) { return m.get(key); }
+            public String remove(String key) { return m.remove(key); }
+        };
+    }
+
+    /** Normalizes JDK nulls to "" so every implementation does the same work per call. */
+    private static MapOps jdk(Map<String, String> m) {
+        return new MapOps() {
+            public void put(String key, String value) { m.put(key, value); }
+            public String get(String key) { String v = m.get(key); return v == null ? "" : v; }
+            public String remove(String key) { String v = m.remove(key); return v == null ? "" : v; }
+        };
+    }
+
+    static String[] generateKeys(Distribution distribution, int count, Random random) {
+        String[] out = new String[count];
+        Set<String> seen = new HashSet<>(count * 2);
+        int n = 0;
+
+        switch (distribution) {
+            case RANDOM:
+                while (n < count) {
+                    String key = randomWord(random, 8 + random.nextInt(9));
+                    if (seen.add(key)) out[n++] = key;
+                }
+                break;
+            case ANAGRAM:
+                while (n < count) {
+                    char[] base = randomWord(random, 12).toCharArray();
+                    for (int p = 0; p < 64 && n < count; p++) {
+                        shuffle(base, random);
+                        String key = new String(base);
+                        if (seen.add(key)) out[n++] = key;
+                    }
+                }
+                break;
+            case SEQUENTIAL:
+                for (; n < count; n++) {
+                    out[n] = base26(n);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        return out;
+    }
+
+    private static String randomWord(Random random, int length) {
+        char[] c = new char[length];
+        for (int i = 0; i < length; i++) {
+            c[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(c);
+    }
+
+    private static String base26(int value) {
+        char[] c = new char[6];
+        for (int i = c.length - 1; i >= 0; i--) {
+            c[i] = (char) ('a' + value % 26);
+            value /= 26;
+        }
+        return new String(c);
+    }
+
+    private static void shuffle(char[] c, Random random) {
+        for (int i = c.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char t = c[i];
+            c[i] = c[j];
+            c[j] = t;
+        }
+    }
+
+    static void shuffle(String[] a, Random random) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
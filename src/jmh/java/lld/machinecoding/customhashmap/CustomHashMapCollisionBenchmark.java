@@ -0,0 +1,108 @@
+package lld.machinecoding.customhashmap;
+
+import lld.machinecoding.customhashmap.CustomHashMapBenchmark.Distribution;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The heap engines under {@link HashFunction#legacy()} vs the default mixing hash.
+ *
+ *   java -jar target/benchmarks.jar CustomHashMapCollisionBenchmark
+ *
+ * The legacy hash sums characters, so every {@code ANAGRAM} group shares one hash and
+ * all hashes fall below a few hundred: chains and probe clusters grow with the map and
+ * filling it is quadratic. Sizes therefore stop at 100k, and {@code RANDOM} keys show
+ * how much of the gap is the anagrams alone. Keys are generated as in
+ * {@link CustomHashMapBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomHashMapCollisionBenchmark {
+
+    private static final String VALUE = "value";
+
+    public enum Hash { MIXING, LEGACY }
+
+    @Param({"CHAINING", "OPEN_ADDRESSING"})
+    public CustomHashMap.Engine engine;
+
+    @Param({"MIXING", "LEGACY"})
+    public Hash hash;
+
+    @Param({"ANAGRAM", "RANDOM"})
+    public Distribution distribution;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private String[] keys;
+    private String[] missingKeys;
+    private CustomHashMap map;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] all = CustomHashMapBenchmark.generateKeys(distribution, size * 2, new Random(42));
+        keys = new String[size];
+        missingKeys = new String[size];
+        System.arraycopy(all, 0, keys, 0, size);
+        System.arraycopy(all, size, missingKeys, 0, size);
+        CustomHashMapBenchmark.shuffle(keys, new Random(7));
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        map = newMap();
+        for (String key : keys) {
+            map.put(key, VALUE);
+        }
+        cursor = 0;
+    }
+
+    @Benchmark
+    public String getHit() {
+        return map.get(keys[next()]);
+    }
+
+    @Benchmark
+    public String getMiss() {
+        return map.get(missingKeys[next()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int growShrinkCycle() {
+        CustomHashMap cycle = newMap();
+        for (String key : keys) {
+            cycle.put(key, VALUE);
+        }
+        int removed = 0;
+        for (String key : keys) {
+            removed += cycle.remove(key).length();
+        }
+        return removed;
+    }
+
+    private int next() {
+        int i = cursor++;
+        if (cursor == size) cursor = 0;
+        return i;
+    }
+
+    private CustomHashMap newMap() {
+        CustomHashMap.Builder builder = new CustomHashMap.Builder(0.25, 0.75).engine(engine);
+        if (hash == Hash.LEGACY) {
+            builder.hashFunction(HashFunction.legacy());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,98 @@
+package lld.machinecoding.ratelimiter;
+
+import lld.machinecoding.ratelimiter.RateLimiterBenchmark.Impl;
+import lld.machinecoding.ratelimiter.RateLimiterBenchmark.Keys;
+import lld.machinecoding.ratelimiter.RateLimiterBenchmark.Limiter;
+import lld.machinecoding.ratelimiter.RateLimiterBenchmark.ThreadState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Regression gate for admission accuracy under contention.
+ *
+ *   java -jar target/benchmarks.jar RateLimiterAccuracyBenchmark -foe true
+ *
+ * Time is frozen (a {@link ManualClock} that is never advanced), so within an iteration
+ * every key must be admitted exactly min(attempts, LIMIT) times. Each iteration starts
+ * from a fresh limiter and its teardown fails the run on any over- or under-admission.
+ * The scores include the cost of the per-key bookkeeping and are not comparable with
+ * {@link RateLimiterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class RateLimiterAccuracyBenchmark {
+
+    @Param({"FIXED_WINDOW", "SLIDING_WINDOW", "TOKEN_BUCKET", "TIERED",
+            "SIMPLE_FIXED_WINDOW", "SIMPLE_SLIDING_WINDOW", "SIMPLE_GCRA"})
+    public Impl impl;
+
+    @Param({"HOT", "UNIFORM"})
+    public Keys keys;
+
+    private Limiter limiter;
+    // indexed by key; the hot key uses slot 0 (it is never mixed with the uniform keys)
+    private AtomicLongArray attempts;
+    private AtomicLongArray admitted;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        limiter = RateLimiterBenchmark.create(impl, new ManualClock());
+        attempts = new AtomicLongArray(RateLimiterBenchmark.KEY_COUNT);
+        admitted = new AtomicLongArray(RateLimiterBenchmark.KEY_COUNT);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify() {
+        for (int i = 0; i < attempts.length(); i++) {
+            long expected = Math.min(attempts.get(i), RateLimiterBenchmark.LIMIT);
+            long actual = admitted.get(i);
+            if (actual != expected) {
+                throw new IllegalStateException(impl + "/" + keys + ": key " + i + " admitted " + actual
+                        + " of " + attempts.get(i) + " attempts, expected " + expected
+                        + (actual > expected ? " (over-admission)" : " (under-admission)"));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean threads01(ThreadState t) {
+        return attempt(t);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean threads04(ThreadState t) {
+        return attempt(t);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean threads16(ThreadState t) {
+        return attempt(t);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean threads64(ThreadState t) {
+        return attempt(t);
+    }
+
+    private boolean attempt(ThreadState t) {
+        int slot = keys == Keys.HOT ? 0 : t.nextIndex();
+        String key = keys == Keys.HOT ? RateLimiterBenchmark.HOT_KEY : RateLimiterBenchmark.KEYS[slot];
+
+        attempts.incrementAndGet(slot);
+        boolean ok = limiter.allow(key);
+        if (ok) {
+            admitted.incrementAndGet(slot);
+        }
+        return ok;
+    }
+}
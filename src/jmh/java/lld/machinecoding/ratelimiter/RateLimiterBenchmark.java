@@ -0,0 +1,158 @@
+package lld.machinecoding.ratelimiter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission throughput of every limiter under contention.
+ *
+ *   mvn -Pbenchmarks package
+ *   java -jar target/benchmarks.jar RateLimiterBenchmark -p keys=HOT
+ *
+ * Each limiter allows {@link #LIMIT} requests per key per {@link #WINDOW_MILLIS} on the
+ * real clock, so the HOT key is mostly rejected and the UNIFORM keys mostly admitted.
+ * JMH cannot parameterize the thread count, hence one method per count.
+ * {@link RateLimiterAccuracyBenchmark} checks the same limiters for exact admission.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    static final int LIMIT = 1_000;
+    static final long WINDOW_MILLIS = 100;
+    static final int KEY_COUNT = 1_024;   // power of two, see ThreadState
+    static final String HOT_KEY = "hot";
+    static final String[] KEYS = new String[KEY_COUNT];
+
+    static {
+        for (int i = 0; i < KEY_COUNT; i++) {
+            KEYS[i] = "user-" + i;
+        }
+    }
+
+    public enum Impl {
+        FIXED_WINDOW, SLIDING_WINDOW, TOKEN_BUCKET, TIERED,
+        SIMPLE_FIXED_WINDOW, SIMPLE_SLIDING_WINDOW, SIMPLE_GCRA
+    }
+
+    public enum Keys {
+        /** Every thread hits one key. */
+        HOT,
+        /** Each thread walks its own random sequence over {@link #KEY_COUNT} keys. */
+        UNIFORM
+    }
+
+    /** One admission decision for a key; adapts both limiter APIs. */
+    interface Limiter {
+        boolean allow(String key);
+    }
+
+    @Param({"FIXED_WINDOW", "SLIDING_WINDOW", "TOKEN_BUCKET", "TIERED",
+            "SIMPLE_FIXED_WINDOW", "SIMPLE_SLIDING_WINDOW", "SIMPLE_GCRA"})
+    public Impl impl;
+
+    @Param({"HOT", "UNIFORM"})
+    public Keys keys;
+
+    private Limiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limiter = create(impl, MonotonicClock.system());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private int seed;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            seed = System.identityHashCode(this) | 1;
+        }
+
+        String next(Keys keys) {
+            return keys == Keys.HOT ? HOT_KEY : KEYS[nextIndex()];
+        }
+
+        /** Next uniform key index; xorshift, so no allocation and no state shared between threads. */
+        int nextIndex() {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return seed & (KEY_COUNT - 1);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean threads01(ThreadState t) {
+        return limiter.allow(t.next(keys));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean threads04(ThreadState t) {
+        return limiter.allow(t.next(keys));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean threads16(ThreadState t) {
+        return limiter.allow(t.next(keys));
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean threads64(ThreadState t) {
+        return limiter.allow(t.next(keys));
+    }
+
+    /**
+     * A limiter allowing {@link #LIMIT} per key per {@link #WINDOW_MILLIS} on {@code clock}.
+     * The simplesolution strategies take the clock reading as their millisecond timestamp.
+     */
+    static Limiter create(Impl impl, MonotonicClock clock) {
+        switch (impl) {
+            case FIXED_WINDOW:
+                return new FixedWindowRateLimiter(LIMIT, WINDOW_MILLIS, clock)::allowRequest;
+            case SLIDING_WINDOW:
+                return new SlidingWindowRateLimiter(LIMIT, WINDOW_MILLIS, 10, clock)::allowRequest;
+            case TOKEN_BUCKET:
+                return new TokenBucketRateLimiter(LIMIT, LIMIT * 1000d / WINDOW_MILLIS, clock)::allowRequest;
+            case TIERED: {
+                // per-user window under a global bucket that holds every key's full quota, so it never binds
+                FixedWindowRateLimiter perUser = new FixedWindowRateLimiter(LIMIT, WINDOW_MILLIS, clock);
+                TokenBucketRateLimiter global = new TokenBucketRateLimiter(
+                        (KEY_COUNT + 1) * LIMIT, (KEY_COUNT + 1) * LIMIT * 1000d / WINDOW_MILLIS, clock);
+                return new TieredRateLimiter.Builder()
+                        .tier(perUser, user -> user)
+                        .tier(global, user -> "global")
+                        .build()::allowRequest;
+            }
+            case SIMPLE_FIXED_WINDOW:
+                return simple("fixed-window-counter", clock);
+            case SIMPLE_SLIDING_WINDOW:
+                return simple("sliding-window-counter", clock);
+            case SIMPLE_GCRA:
+                return simple("gcra", clock);
+            default:
+                throw new IllegalArgumentException(impl.name());
+        }
+    }
+
+    private static Limiter simple(String strategy, MonotonicClock clock) {
+        lld.machinecoding.ratelimiter.simplesolution.RateLimiter rl =
+                new lld.machinecoding.ratelimiter.simplesolution.RateLimiter();
+        String limits = LIMIT + "," + WINDOW_MILLIS;
+        rl.addResource(HOT_KEY, strategy, limits);
+        for (String key : KEYS) {
+            rl.addResource(key, strategy, limits);
+        }
+        return key -> rl.isAllowed(key, (int) TimeUnit.NANOSECONDS.toMillis(clock.nanos()));
+    }
+}
@@ -0,0 +1,57 @@
+package lld.machinecoding.customhashmap;
+
+/**
+ * Snapshot of how evenly keys are spread over the buckets.
+ *
+ * {@code histogram[n]} is the number of chains of length {@code n}; index 0
+ * counts empty buckets. For the open-addressing engine a "chain" is the probe
+ * sequence needed to reach one entry, so {@code histogram[n]} counts entries
+ * that sit {@code n - 1} slots past their home bucket.
+ */
+public class ChainStats {
+
+    private final int bucketsCount;
+    private final int[] histogram;
+
+    ChainStats(int bucketsCount, int[] histogram) {
+        this.bucketsCount = bucketsCount;
+        this.histogram = histogram;
+    }
+
+    public int bucketsCount() { return bucketsCount; }
+
+    public int emptyBuckets() { return histogram.length == 0 ? 0 : histogram[0]; }
+
+    public int maxChainLength() {
+        for (int n = histogram.length - 1; n > 0; n--) {
+            if (histogram[n] > 0) return n;
+        }
+        return 0;
+    }
+
+    /** Mean length over non-empty chains. */
+    public double averageChainLength() {
+        long chains = 0;
+        long total = 0;
+        for (int n = 1; n < histogram.length; n++) {
+            chains += histogram[n];
+            total += (long) n * histogram[n];
+        }
+        return chains == 0 ? 0.0 : HashEngine.round2((double) total / chains);
+    }
+
+    /** Number of chains with exactly {@code length} entries. */
+    public int chainsOfLength(int length) {
+        return length >= 0 && length < histogram.length ? histogram[length] : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ChainStats{" +
+                "bucketsCount=" + bucketsCount +
+                ", emptyBuckets=" + emptyBuckets() +
+                ", maxChainLength=" + maxChainLength() +
+                ", averageChainLength=" + averageChainLength() +
+                '}';
+    }
+}
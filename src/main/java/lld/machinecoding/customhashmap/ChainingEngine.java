@@ -0,0 +1,280 @@
+package lld.machinecoding.customhashmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Separate chaining: each bucket is a singly linked list of {@link Entry} nodes.
+ * A chain that reaches {@link TreeBin#TREEIFY_THRESHOLD} entries is converted to a
+ * {@link TreeBin}, and converted back once it drops to
+ * {@link TreeBin#UNTREEIFY_THRESHOLD}.
+ *
+ * Resizing is incremental, Redis-style. {@link #resize} only swaps in the new
+ * bucket array and keeps the old one as {@code draining}; every later
+ * operation relinks at most {@code rehashStep} old buckets into the new array,
+ * so no single call pays for the whole table. Until its old bucket has been
+ * migrated a key stays (and is inserted) in the old array, so a lookup only
+ * ever has to search one chain.
+ */
+class ChainingEngine extends HashEngine {
+
+    /** Cap on empty old buckets skipped per step, as a multiple of rehashStep. */
+    private static final int EMPTY_VISITS_PER_STEP = 10;
+
+    private final int rehashStep;
+
+    private Entry[] buckets;
+    private Entry[] draining;      // old array while a rehash is in progress, else null
+    private int drainIndex;        // old buckets below this index are migrated
+
+    ChainingEngine(double minLoadFactor, double maxLoadFactor, HashFunction hashFunction, int rehashStep) {
+        super(minLoadFactor, maxLoadFactor, hashFunction);
+        this.rehashStep = rehashStep;
+        this.buckets = new Entry[2];   // initial bucketsCount = 2
+    }
+
+    @Override
+    boolean insert(int hash, String key, String value) {
+        migrateStep();
+        Entry[] table = tableFor(hash);
+        int index = indexFor(hash, table.length);
+        Entry head = table[index];
+
+        if (head instanceof TreeBin) {
+            return ((TreeBin) head).put(hash, key, value);
+        }
+
+        // check if key exists → update
+        int chainLength = 0;
+        Entry curr = head;
+        while (curr != null) {
+            if (curr.hash == hash && curr.key.equals(key)) {
+                curr.value = value;
+                return false;
+            }
+            chainLength++;
+            curr = curr.next;
+        }
+
+        // insert new entry
+        Entry newEntry = new Entry(hash, key, value);
+        newEntry.next = head;
+        table[index] = chainLength + 1 >= TreeBin.TREEIFY_THRESHOLD ? new TreeBin(newEntry) : newEntry;
+        return true;
+    }
+
+    @Override
+    String lookup(int hash, String key) {
+        migrateStep();
+        Entry[] table = tableFor(hash);
+        Entry curr = table[indexFor(hash, table.length)];
+
+        if (curr instanceof TreeBin) {
+            return ((TreeBin) curr).get(key);
+        }
+
+        while (curr != null) {
+            if (curr.hash == hash && curr.key.equals(key)) {
+                return curr.value;
+            }
+            curr = curr.next;
+        }
+        return null;
+    }
+
+    @Override
+    String delete(int hash, String key) {
+        migrateStep();
+        Entry[] table = tableFor(hash);
+        int index = indexFor(hash, table.length);
+        Entry curr = table[index];
+        Entry prev = null;
+
+        if (curr instanceof TreeBin) {
+            TreeBin bin = (TreeBin) curr;
+            String removed = bin.remove(key);
+            if (removed != null && bin.count() <= TreeBin.UNTREEIFY_THRESHOLD) {
+                table[index] = bin.toChain();
+            }
+            return removed;
+        }
+
+        while (curr != null) {
+            if (curr.hash == hash && curr.key.equals(key)) {
+                if (prev == null) {
+                    table[index] = curr.next;
+                } else {
+                    prev.next = curr.next;
+                }
+                return curr.value;
+            }
+            prev = curr;
+            curr = curr.next;
+        }
+        return null;
+    }
+
+    @Override
+    List<String> getBucketKeys(int bucketIndex) {
+        List<String> result = new ArrayList<>();
+
+        if (bucketIndex < 0 || bucketIndex >= buckets.length) {
+            return result;
+        }
+
+        // bucket indexes refer to the new array; finish moving keys into it
+        finishRehash();
+
+        Entry curr = buckets[bucketIndex];
+        if (curr instanceof TreeBin) {
+            // in-order walk is already lexicographic
+            ((TreeBin) curr).keysInOrder(result);
+            return result;
+        }
+
+        // inserts and rehashing treeify longer chains, so this one is shorter than
+        // TREEIFY_THRESHOLD and insertion sort stays cheap
+        while (curr != null) {
+            int i = result.size();
+            result.add(curr.key);
+            while (i > 0 && result.get(i - 1).compareTo(curr.key) > 0) {
+                result.set(i, result.get(i - 1));
+                i--;
+            }
+            result.set(i, curr.key);
+            curr = curr.next;
+        }
+
+        return result;
+    }
+
+    @Override
+    ChainStats chainStats() {
+        finishRehash();
+
+        int[] lengths = new int[buckets.length];
+        int max = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] instanceof TreeBin) {
+                lengths[i] = ((TreeBin) buckets[i]).count();
+            } else {
+                for (Entry curr = buckets[i]; curr != null; curr = curr.next) {
+                    lengths[i]++;
+                }
+            }
+            max = Math.max(max, lengths[i]);
+        }
+
+        int[] histogram = new int[max + 1];
+        for (int len : lengths) {
+            histogram[len]++;
+        }
+        return new ChainStats(buckets.length, histogram);
+    }
+
+    @Override
+    int bucketsCount() {
+        return buckets.length;
+    }
+
+    @Override
+    void resize(int newBucketCount) {
+        if (newBucketCount < 2) return;
+
+        // a previous rehash that has not caught up must land before the next one starts
+        finishRehash();
+
+        draining = buckets;
+        drainIndex = 0;
+        buckets = new Entry[newBucketCount];
+
+        if (rehashStep <= 0) {
+            finishRehash();
+        }
+    }
+
+    // ---------------- Incremental rehash ----------------
+
+    /** The array that currently owns keys with this hash. */
+    private Entry[] tableFor(int hash) {
+        if (draining != null && indexFor(hash, draining.length) >= drainIndex) {
+            return draining;
+        }
+        return buckets;
+    }
+
+    private void migrateStep() {
+        if (draining == null) return;
+
+        int moved = 0;
+        int emptyVisits = rehashStep * EMPTY_VISITS_PER_STEP;
+        while (drainIndex < draining.length && moved < rehashStep) {
+            if (draining[drainIndex] == null) {
+                drainIndex++;
+                if (--emptyVisits == 0) break;
+                continue;
+            }
+            migrateBucket(drainIndex++);
+            moved++;
+        }
+
+        if (drainIndex == draining.length) {
+            draining = null;
+        }
+    }
+
+    private void finishRehash() {
+        if (draining == null) return;
+
+        while (drainIndex < draining.length) {
+            migrateBucket(drainIndex++);
+        }
+        draining = null;
+    }
+
+    /**
+     * Relinks every node of one old bucket into the new array. Tree bins are first
+     * flattened back into chains of their own nodes; any chain the move leaves at
+     * {@link TreeBin#TREEIFY_THRESHOLD} or longer is treeified again before returning.
+     */
+    private void migrateBucket(int oldIndex) {
+        Entry curr = draining[oldIndex];
+        if (curr == null) return;
+        draining[oldIndex] = null;
+
+        if (curr instanceof TreeBin) {
+            curr = ((TreeBin) curr).toChain();
+        }
+
+        while (curr != null) {
+            Entry next = curr.next;
+            int index = indexFor(curr.hash, buckets.length);
+            Entry head = buckets[index];
+            if (head instanceof TreeBin) {
+                ((TreeBin) head).put(curr.hash, curr.key, curr.value);
+            } else {
+                curr.next = head;
+                buckets[index] = curr;
+            }
+            curr = next;
+        }
+
+        // the new buckets this old one feeds: one when shrinking, every old-length stride when growing
+        for (int index = oldIndex & (buckets.length - 1); index < buckets.length; index += draining.length) {
+            treeifyIfLong(index);
+        }
+    }
+
+    private void treeifyIfLong(int index) {
+        Entry head = buckets[index];
+        if (head instanceof TreeBin) return;
+
+        int length = 0;
+        for (Entry curr = head; curr != null; curr = curr.next) {
+            if (++length >= TreeBin.TREEIFY_THRESHOLD) {
+                buckets[index] = new TreeBin(head);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package lld.machinecoding.customhashmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe variant of {@link CustomHashMap} with the same API and the same
+ * min/max load-factor rules.
+ *
+ * Bins are installed with CAS when empty; a non-empty bin is mutated under the
+ * monitor of its head node, so writers only contend when they hit the same bin.
+ * Reads take no locks: node links and values are volatile, and removal only
+ * unlinks, so a reader always walks a consistent chain.
+ *
+ * Resizing is cooperative. One thread publishes a {@link Resize}; every writer
+ * that notices it claims {@link #TRANSFER_STRIDE} bins at a time, copies them
+ * into the new array and leaves a {@link ForwardingNode} behind. Readers that
+ * meet a forwarding node follow it to the new array. Writers that meet one help
+ * finish the resize and retry against the new array.
+ */
+public class ConcurrentCustomHashMap {
+
+    private static final int TRANSFER_STRIDE = 16;
+
+    static class Node {
+        final int hash;
+        final String key;
+        volatile String value;
+        volatile Node next;
+
+        Node(int hash, String key, String value, Node next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /** Placed in a bin once its entries have been copied into {@code target}. */
+    static final class ForwardingNode extends Node {
+        final AtomicReferenceArray<Node> target;
+
+        ForwardingNode(AtomicReferenceArray<Node> target) {
+            super(0, null, null, null);
+            this.target = target;
+        }
+    }
+
+    private static final class Resize {
+        final AtomicReferenceArray<Node> from;
+        final AtomicReferenceArray<Node> to;
+        final ForwardingNode forward;
+        final AtomicInteger nextBin = new AtomicInteger();    // claim cursor into from
+        final AtomicInteger binsMoved = new AtomicInteger();
+
+        Resize(AtomicReferenceArray<Node> from, int newBucketCount) {
+            this.from = from;
+            this.to = new AtomicReferenceArray<>(newBucketCount);
+            this.forward = new ForwardingNode(to);
+        }
+    }
+
+    private final double minLoadFactor;
+    private final double maxLoadFactor;
+    private final HashFunction hashFunction;
+    private final LongAdder size = new LongAdder();
+    private final Object resizeStartLock = new Object();
+
+    private volatile AtomicReferenceArray<Node> table;
+    private volatile Resize resize;
+
+    public ConcurrentCustomHashMap(double minLoadFactor, double maxLoadFactor) {
+        this(minLoadFactor, maxLoadFactor, HashFunction.mixing());
+    }
+
+    public ConcurrentCustomHashMap(double minLoadFactor, double maxLoadFactor, HashFunction hashFunction) {
+        this.minLoadFactor = HashEngine.round2(minLoadFactor);
+        this.maxLoadFactor = HashEngine.round2(maxLoadFactor);
+        this.hashFunction = hashFunction;
+        this.table = new AtomicReferenceArray<>(2);   // initial bucketsCount = 2
+    }
+
+    // ---------------- Public API ----------------
+
+    public void put(String key, String value) {
+        int hash = hashFunction.hash(key);
+        AtomicReferenceArray<Node> tab = table;
+
+        while (true) {
+            int i = HashEngine.indexFor(hash, tab.length());
+            Node head = tab.get(i);
+
+            if (head == null) {
+                if (tab.compareAndSet(i, null, new Node(hash, key, value, null))) break;
+                continue;
+            }
+            if (head instanceof ForwardingNode) {
+                tab = helpResize(tab);
+                continue;
+            }
+
+            synchronized (head) {
+                if (tab.get(i) != head) continue;
+
+                // check if key exists → update, else append at the tail
+                for (Node e = head; ; e = e.next) {
+                    if (e.hash == hash && e.key.equals(key)) {
+                        e.value = value;
+                        return;
+                    }
+                    if (e.next == null) {
+                        e.next = new Node(hash, key, value, null);
+                        break;
+                    }
+                }
+            }
+            break;
+        }
+
+        size.increment();
+        resizeIfNeeded();
+    }
+
+    public String get(String key) {
+        int hash = hashFunction.hash(key);
+        AtomicReferenceArray<Node> tab = table;
+
+        while (true) {
+            Node e = tab.get(HashEngine.indexFor(hash, tab.length()));
+            if (e instanceof ForwardingNode) {
+                tab = ((ForwardingNode) e).target;
+                continue;
+            }
+            for (; e != null; e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    return e.value;
+                }
+            }
+            return "";
+        }
+    }
+
+    public String remove(String key) {
+        int hash = hashFunction.hash(key);
+        AtomicReferenceArray<Node> tab = table;
+        String removed = null;
+
+        while (true) {
+            int i = HashEngine.indexFor(hash, tab.length());
+            Node head = tab.get(i);
+
+            if (head == null) return "";
+            if (head instanceof ForwardingNode) {
+                tab = helpResize(tab);
+                continue;
+            }
+
+            synchronized (head) {
+                if (tab.get(i) != head) continue;
+
+                Node prev = null;
+                for (Node e = head; e != null; prev = e, e = e.next) {
+                    if (e.hash == hash && e.key.equals(key)) {
+                        if (prev == null) {
+                            tab.set(i, e.next);
+                        } else {
+                            prev.next = e.next;
+                        }
+                        removed = e.value;
+                        break;
+                    }
+                }
+            }
+            break;
+        }
+
+        if (removed == null) return "";
+        size.decrement();
+        resizeIfNeeded();
+        return removed;
+    }
+
+    public List<String> getBucketKeys(int bucketIndex) {
+        List<String> result = new ArrayList<>();
+        AtomicReferenceArray<Node> tab = table;
+
+        if (bucketIndex < 0 || bucketIndex >= tab.length()) {
+            return result;
+        }
+
+        Node e = tab.get(bucketIndex);
+        if (e instanceof ForwardingNode) {
+            // the index refers to a table that is being replaced; report the new one
+            helpResize(tab);
+            return getBucketKeys(bucketIndex);
+        }
+        for (; e != null; e = e.next) {
+            result.add(e.key);
+        }
+
+        Collections.sort(result);
+        return result;
+    }
+
+    public int size() {
+        return (int) size.sum();
+    }
+
+    public int bucketsCount() {
+        return table.length();
+    }
+
+    // ---------------- Resize ----------------
+
+    private void resizeIfNeeded() {
+        Resize inFlight = resize;
+        if (inFlight != null) {
+            transfer(inFlight);
+            return;
+        }
+
+        AtomicReferenceArray<Node> tab = table;
+        int current = tab.length();
+        int target = HashEngine.targetBucketCount(current, size(), minLoadFactor, maxLoadFactor, 0);
+        if (target == current) return;
+
+        Resize started = null;
+        synchronized (resizeStartLock) {
+            // a stale view of the table must not start a resize of an array that is already gone
+            if (table == tab && resize == null) {
+                started = new Resize(tab, target);
+                resize = started;
+            }
+        }
+        if (started != null) {
+            transfer(started);
+        }
+    }
+
+    /** Helps the resize that replaced {@code tab} and waits until it is published. */
+    private AtomicReferenceArray<Node> helpResize(AtomicReferenceArray<Node> tab) {
+        Resize r = resize;
+        if (r != null && r.from == tab) {
+            transfer(r);
+        }
+        while (table == tab) {
+            Thread.yield();   // another helper is still copying its last stride
+        }
+        return table;
+    }
+
+    private void transfer(Resize r) {
+        int n = r.from.length();
+
+        while (true) {
+            int start = r.nextBin.getAndAdd(TRANSFER_STRIDE);
+            if (start >= n) return;
+
+            int end = Math.min(start + TRANSFER_STRIDE, n);
+            for (int i = start; i < end; i++) {
+                moveBin(r, i);
+            }
+
+            if (r.binsMoved.addAndGet(end - start) == n) {
+                table = r.to;
+                resize = null;
+                return;
+            }
+        }
+    }
+
+    private void moveBin(Resize r, int i) {
+        while (true) {
+            Node head = r.from.get(i);
+            if (head == null) {
+                if (r.from.compareAndSet(i, null, r.forward)) return;
+                continue;
+            }
+
+            synchronized (head) {
+                if (r.from.get(i) != head) continue;
+
+                // copy rather than relink: lock-free readers may still be walking this chain
+                for (Node e = head; e != null; e = e.next) {
+                    prepend(r.to, new Node(e.hash, e.key, e.value, null));
+                }
+                r.from.set(i, r.forward);
+                return;
+            }
+        }
+    }
+
+    /** Several old bins can feed one new bin on shrink, so new bins are pushed with CAS. */
+    private static void prepend(AtomicReferenceArray<Node> tab, Node node) {
+        int i = HashEngine.indexFor(node.hash, tab.length());
+        while (true) {
+            Node head = tab.get(i);
+            node.next = head;
+            if (tab.compareAndSet(i, head, node)) return;
+        }
+    }
+}
@@ -1,183 +1,155 @@
 package lld.machinecoding.customhashmap;
 
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.List;
 
-public class CustomHashMap {
+/**
+ * String → String hash map with explicit buckets and load-factor driven rehashing.
+ *
+ * Keys are hashed with {@link HashFunction#mixing()} by default; pass
+ * {@link HashFunction#legacy()} to the {@link Builder} to reproduce the bucket
+ * placement described in the problem statement.
+ */
+public class CustomHashMap implements AutoCloseable {
+
+    /** How entries are laid out in memory; picked once at construction time. */
+    public enum Engine {
+        /** Linked {@link Entry} chains per bucket (the original layout). */
+        CHAINING,
+        /** Linear probing over parallel arrays; no per-entry allocation. */
+        OPEN_ADDRESSING,
+        /** Linear probing with UTF-8 keys/values and the slot table outside the Java heap. */
+        OFF_HEAP
+    }
 
-    private Entry[] buckets;
-    private int size;
-    private double minLoadFactor;
-    private double maxLoadFactor;
+    private final HashEngine engine;
 
     public CustomHashMap(double minLoadFactor, double maxLoadFactor) {
-        this.minLoadFactor = round2(minLoadFactor);
-        this.maxLoadFactor = round2(maxLoadFactor);
-        this.buckets = new Entry[2];   // initial bucketsCount = 2
-        this.size = 0;
+        this(new Builder(minLoadFactor, maxLoadFactor));
     }
 
-    private double round2(double val) {
-        return Math.round(val * 100.0) / 100.0;
+    public CustomHashMap(double minLoadFactor, double maxLoadFactor, Engine engine) {
+        this(new Builder(minLoadFactor, maxLoadFactor).engine(engine));
     }
 
-    public void put(String key, String value) {
-        int index = bucketIndex(key, buckets.length);
-        Entry head = buckets[index];
-
-        // check if key exists → update
-        Entry curr = head;
-        while (curr != null) {
-            if (curr.key.equals(key)) {
-                curr.value = value;
-                return;
-            }
-            curr = curr.next;
+    private CustomHashMap(Builder builder) {
+        if (builder.mappedDirectory != null && builder.engine != Engine.OFF_HEAP) {
+            throw new IllegalArgumentException("mappedDirectory requires the OFF_HEAP engine");
         }
+        HashFunction hashFunction = builder.hashFunction != null ? builder.hashFunction : HashFunction.mixing();
+        switch (builder.engine) {
+            case CHAINING:
+                this.engine = new ChainingEngine(builder.minLoadFactor, builder.maxLoadFactor, hashFunction,
+                        builder.rehashStep);
+                break;
+            case OPEN_ADDRESSING:
+                this.engine = new OpenAddressingEngine(builder.minLoadFactor, builder.maxLoadFactor, hashFunction);
+                break;
+            case OFF_HEAP:
+                this.engine = OffHeapEngine.open(builder.minLoadFactor, builder.maxLoadFactor, hashFunction,
+                        builder.mappedDirectory);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + builder.engine);
+        }
+    }
 
-        // insert new entry
-        Entry newEntry = new Entry(key, value);
-        newEntry.next = head;
-        buckets[index] = newEntry;
-        size++;
-
-        rehashIfNeeded();
-
+    public void put(String key, String value) {
+        engine.put(key, value);
     }
 
     public String get(String key) {
-        int index = bucketIndex(key, buckets.length);
-        Entry curr = buckets[index];
-
-        while (curr != null) {
-            if (curr.key.equals(key)) {
-                return curr.value;
-            }
-            curr = curr.next;
-        }
-        return "";
+        return engine.get(key);
     }
 
     public String remove(String key) {
-        int index = bucketIndex(key, buckets.length);
-        Entry curr = buckets[index];
-        Entry prev = null;
-
-        while (curr != null) {
-            if (curr.key.equals(key)) {
-                if (prev == null) {
-                    buckets[index] = curr.next;
-                } else {
-                    prev.next = curr.next;
-                }
-                size--;
-                rehashIfNeeded();
-                return curr.value;
-            }
-            prev = curr;
-            curr = curr.next;
-        }
-        return "";
+        return engine.remove(key);
     }
 
-    public List<String> getBucketKeys(int bucketIndex) {
-        List<String> result = new ArrayList<>();
-
-        if (bucketIndex < 0 || bucketIndex >= buckets.length) {
-            return result;
-        }
+    /**
+     * Bulk put: hashes every key up front and resizes at most twice for the whole
+     * batch instead of checking the load factor after each entry.
+     */
+    public void putAll(List<String> keys, List<String> values) {
+        engine.putAll(keys, values);
+    }
 
-        Entry curr = buckets[bucketIndex];
-        while (curr != null) {
-            result.add(curr.key);
-            curr = curr.next;
-        }
+    /** Values in key order; "" for missing keys. */
+    public List<String> getAll(List<String> keys) {
+        return engine.getAll(keys);
+    }
 
-        // manual lexicographic sort
-        for (int i = 0; i < result.size(); i++) {
-            for (int j = i + 1; j < result.size(); j++) {
-                if (result.get(i).compareTo(result.get(j)) > 0) {
-                    String tmp = result.get(i);
-                    result.set(i, result.get(j));
-                    result.set(j, tmp);
-                }
-            }
-        }
+    /** Removed values in key order ("" for missing keys); rehashes at most once. */
+    public List<String> removeAll(List<String> keys) {
+        return engine.removeAll(keys);
+    }
 
-        return result;
+    public List<String> getBucketKeys(int bucketIndex) {
+        return engine.getBucketKeys(bucketIndex);
     }
 
     public int size() {
-        return size;
+        return engine.size();
     }
 
     public int bucketsCount() {
-        return buckets.length;
+        return engine.bucketsCount();
     }
 
-    private int bucketIndex(String key, int bucketsCount) {
-        return hash(key) % bucketsCount;
+    /** Chain-length distribution of the current table; O(bucketsCount). */
+    public ChainStats chainStats() {
+        return engine.chainStats();
     }
 
-    private int hash(String key) {
-        int sum = 0;
-        for (char c : key.toCharArray()) {
-            sum += (c - 'a' + 1);
-        }
-        int len = key.length();
-        return len * len + sum;
+    /** Flushes and releases file-backed storage; the map must not be used afterwards. */
+    @Override
+    public void close() {
+        engine.close();
     }
 
-    private void rehashIfNeeded() {
-        double lf = loadFactor();
-
-        // GROW
-        while (lf > maxLoadFactor) {
-            rehash(buckets.length * 2);
-            lf = loadFactor();   // recompute after resize
+    public static class Builder {
+        private final double minLoadFactor;
+        private final double maxLoadFactor;
+        private Engine engine = Engine.CHAINING;
+        private HashFunction hashFunction;   // null → fresh seeded mixing hash per map
+        private int rehashStep = 4;
+        private Path mappedDirectory;
+
+        public Builder(double minLoadFactor, double maxLoadFactor) {
+            this.minLoadFactor = minLoadFactor;
+            this.maxLoadFactor = maxLoadFactor;
         }
 
-        // SHRINK
-        while (lf < minLoadFactor && buckets.length > 2) {
-            rehash(buckets.length / 2);
-            lf = loadFactor();
+        public Builder engine(Engine engine) {
+            this.engine = engine;
+            return this;
         }
-    }
-    private double loadFactor() {
-        double lf = (double) size / buckets.length;
-        return round2(lf);
-    }
 
-    private void rehash(int newBucketCount) {
-        if (newBucketCount < 2) return;
+        public Builder hashFunction(HashFunction hashFunction) {
+            this.hashFunction = hashFunction;
+            return this;
+        }
 
-        Entry[] oldBuckets = buckets;
-        buckets = new Entry[newBucketCount];
-        size = 0;  // reset and recount
+        /**
+         * Old buckets the {@link Engine#CHAINING} engine migrates per operation while
+         * a resize is in flight. 0 rehashes the whole table inside the triggering call.
+         */
+        public Builder rehashStep(int bucketsPerOperation) {
+            this.rehashStep = bucketsPerOperation;
+            return this;
+        }
 
-        for (Entry head : oldBuckets) {
-            Entry curr = head;
-            while (curr != null) {
-                insertWithoutRehash(curr.key, curr.value);
-                curr = curr.next;
-            }
+        /**
+         * Backs an {@link Engine#OFF_HEAP} map with memory-mapped files in {@code directory}.
+         * An existing map there is reopened as-is, keeping its original hash function.
+         */
+        public Builder mappedDirectory(Path directory) {
+            this.mappedDirectory = directory;
+            return this;
         }
-    }
 
-    private void insertWithoutRehash(String key, String value) {
-        int index = bucketIndex(key, buckets.length);
-        Entry newEntry = new Entry(key, value);
-        newEntry.next = buckets[index];
-        buckets[index] = newEntry;
-        size++;
+        public CustomHashMap build() {
+            return new CustomHashMap(this);
+        }
     }
-
-
-
-
-
-
-
-
-
 }
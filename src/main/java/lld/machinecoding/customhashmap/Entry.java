@@ -1,11 +1,13 @@
 package lld.machinecoding.customhashmap;
 
 class Entry {
+    final int hash;
     String key;
     String value;
     Entry next;
 
-    Entry(String key, String value) {
+    Entry(int hash, String key, String value) {
+        this.hash = hash;
         this.key = key;
         this.value = value;
     }
@@ -0,0 +1,206 @@
+package lld.machinecoding.customhashmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storage behind {@link CustomHashMap}. Owns the load-factor bookkeeping so every
+ * engine grows and shrinks by exactly the same rules; subclasses only decide how
+ * entries are laid out and moved.
+ */
+abstract class HashEngine {
+
+    protected final double minLoadFactor;
+    protected final double maxLoadFactor;
+    protected final HashFunction hashFunction;
+    protected int size;
+
+    HashEngine(double minLoadFactor, double maxLoadFactor, HashFunction hashFunction) {
+        this.minLoadFactor = round2(minLoadFactor);
+        this.maxLoadFactor = round2(maxLoadFactor);
+        this.hashFunction = hashFunction;
+    }
+
+    // ---------------- Public API ----------------
+
+    void put(String key, String value) {
+        if (insert(hash(key), key, value)) {
+            size++;
+            rehashIfNeeded();
+        }
+    }
+
+    String get(String key) {
+        String value = lookup(hash(key), key);
+        return value == null ? "" : value;
+    }
+
+    String remove(String key) {
+        String removed = delete(hash(key), key);
+        if (removed == null) return "";
+        size--;
+        rehashIfNeeded();
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // ---------------- Batch API ----------------
+
+    /**
+     * Grows once up front for the keys not already present, inserts without any
+     * per-call load-factor check, then settles on the bucket count the same puts
+     * would have reached one by one. A key repeated within the batch is counted
+     * per occurrence, which can only over-reserve.
+     */
+    void putAll(List<String> keys, List<String> values) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException("keys and values differ in length");
+        }
+
+        int[] hashes = hashAll(keys);
+        int added = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (lookup(hashes[i], keys.get(i)) == null) {
+                added++;
+            }
+        }
+
+        int startBuckets = bucketsCount();
+        int reserved = targetBucketCount(startBuckets, size + added);
+        if (reserved != startBuckets) {
+            resize(reserved);
+        }
+
+        for (int i = 0; i < hashes.length; i++) {
+            if (insert(hashes[i], keys.get(i), values.get(i))) {
+                size++;
+            }
+        }
+
+        int target = targetBucketCount(startBuckets, size);
+        if (target != bucketsCount()) {
+            resize(target);
+        }
+    }
+
+    List<String> getAll(List<String> keys) {
+        int[] hashes = hashAll(keys);
+        List<String> result = new ArrayList<>(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            String value = lookup(hashes[i], keys.get(i));
+            result.add(value == null ? "" : value);
+        }
+        return result;
+    }
+
+    /** Removes every key, then rehashes at most once for the final size. */
+    List<String> removeAll(List<String> keys) {
+        int[] hashes = hashAll(keys);
+        List<String> result = new ArrayList<>(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            String removed = delete(hashes[i], keys.get(i));
+            if (removed == null) {
+                result.add("");
+            } else {
+                size--;
+                result.add(removed);
+            }
+        }
+
+        rehashIfNeeded();
+        return result;
+    }
+
+    abstract int bucketsCount();
+
+    abstract List<String> getBucketKeys(int bucketIndex);
+
+    abstract ChainStats chainStats();
+
+    // ---------------- Layout hooks ----------------
+
+    /** Inserts or updates; returns true only when a new key was added. */
+    abstract boolean insert(int hash, String key, String value);
+
+    /** Returns the stored value, or null when absent. */
+    abstract String lookup(int hash, String key);
+
+    /** Unlinks the key and returns its value, or null when absent. */
+    abstract String delete(int hash, String key);
+
+    /** Redistributes every entry into {@code newBucketCount} buckets. */
+    abstract void resize(int newBucketCount);
+
+    /** Releases off-heap or file-backed storage; a no-op for heap engines. */
+    void close() {
+    }
+
+    /** Fewest slots {@code entries} can physically live in, whatever the load factor. */
+    int minBucketsFor(int entries) {
+        return 0;
+    }
+
+    // ---------------- Helpers ----------------
+
+    int hash(String key) {
+        return hashFunction.hash(key);
+    }
+
+    /** Bucket counts are always powers of two, so masking equals a non-negative modulo. */
+    static int indexFor(int hash, int bucketsCount) {
+        return hash & (bucketsCount - 1);
+    }
+
+    void rehashIfNeeded() {
+        int current = bucketsCount();
+        int target = targetBucketCount(current, size);
+        if (target != current) {
+            resize(target);
+        }
+    }
+
+    /** Bucket count the grow/shrink rules settle on for {@code entries}, starting from {@code current}. */
+    int targetBucketCount(int current, int entries) {
+        return targetBucketCount(current, entries, minLoadFactor, maxLoadFactor, minBucketsFor(entries));
+    }
+
+    /**
+     * The grow/shrink rules themselves, shared with {@link ConcurrentCustomHashMap}:
+     * double until the load factor is at most {@code maxLoadFactor}, then halve while
+     * it is below {@code minLoadFactor}, never going under {@code minBuckets}.
+     */
+    static int targetBucketCount(int current, int entries, double minLoadFactor, double maxLoadFactor,
+                                 int minBuckets) {
+        int target = current;
+
+        // GROW
+        while (loadFactor(entries, target) > maxLoadFactor || target < minBuckets) {
+            target *= 2;
+        }
+
+        // SHRINK
+        while (loadFactor(entries, target) < minLoadFactor && target > 2 && target / 2 >= minBuckets) {
+            target /= 2;
+        }
+        return target;
+    }
+
+    static double loadFactor(int entries, int buckets) {
+        return round2((double) entries / buckets);
+    }
+
+    private int[] hashAll(List<String> keys) {
+        int[] hashes = new int[keys.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(keys.get(i));
+        }
+        return hashes;
+    }
+
+    static double round2(double val) {
+        return Math.round(val * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,26 @@
+package lld.machinecoding.customhashmap;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Maps a key to the 32-bit hash that {@link CustomHashMap} derives bucket indexes from. */
+public interface HashFunction {
+
+    int hash(String key);
+
+    /** Seeded murmur3-style mixing; the default for every new map. */
+    static HashFunction mixing() {
+        return new MixingHashFunction(ThreadLocalRandom.current().nextInt());
+    }
+
+    static HashFunction mixing(int seed) {
+        return new MixingHashFunction(seed);
+    }
+
+    /**
+     * The problem-statement hash, {@code len*len + sum(a=1..z=26)}. Every anagram
+     * collides, so use it only when bucket placement must match that spec.
+     */
+    static HashFunction legacy() {
+        return LegacyHashFunction.INSTANCE;
+    }
+}
@@ -0,0 +1,18 @@
+package lld.machinecoding.customhashmap;
+
+class LegacyHashFunction implements HashFunction {
+
+    static final LegacyHashFunction INSTANCE = new LegacyHashFunction();
+
+    private LegacyHashFunction() {}
+
+    @Override
+    public int hash(String key) {
+        int sum = 0;
+        for (int i = 0; i < key.length(); i++) {
+            sum += (key.charAt(i) - 'a' + 1);
+        }
+        int len = key.length();
+        return len * len + sum;
+    }
+}
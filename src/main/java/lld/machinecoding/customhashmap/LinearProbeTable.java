@@ -0,0 +1,97 @@
+package lld.machinecoding.customhashmap;
+
+/**
+ * Slot arithmetic shared by the linear-probing engines ({@link OpenAddressingEngine},
+ * {@link OffHeapEngine}): probe sequences, backward-shift deletion and probe-length
+ * stats. Subclasses only say how a slot is read, compared, moved and cleared, so the
+ * same algorithms run over heap arrays and over an off-heap index.
+ *
+ * The slot count must be a power of two and at least one slot must stay empty, so
+ * every probe terminates.
+ *
+ * @param <K> key form the engine compares slots against
+ */
+abstract class LinearProbeTable<K> {
+
+    /** Current slot count. */
+    abstract int capacity();
+
+    abstract boolean isEmpty(int i);
+
+    /** Hash of the entry in occupied slot {@code i}. */
+    abstract int hashAt(int i);
+
+    /** Whether occupied slot {@code i} holds {@code key}, whose hash is {@code hash}. */
+    abstract boolean holds(int i, int hash, K key);
+
+    /** Copies the entry in slot {@code from} over slot {@code to}. */
+    abstract void move(int from, int to);
+
+    abstract void clear(int i);
+
+    /** Slot holding {@code key}, or -1. */
+    final int find(int hash, K key) {
+        int i = probe(hash, key);
+        return i < 0 ? -1 : i;
+    }
+
+    /** Slot holding {@code key}, or {@code -(empty slot ending its probe) - 1}. */
+    final int probe(int hash, K key) {
+        int mask = capacity() - 1;
+        int i = HashEngine.indexFor(hash, capacity());
+
+        while (!isEmpty(i)) {
+            if (holds(i, hash, key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -i - 1;
+    }
+
+    /** First empty slot on the probe sequence of {@code hash}; for keys known to be absent. */
+    final int firstEmpty(int hash) {
+        int mask = capacity() - 1;
+        int i = HashEngine.indexFor(hash, capacity());
+        while (!isEmpty(i)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /** Empties slot {@code slot}, pulling later members of its cluster back so no tombstone is left. */
+    final void removeAt(int slot) {
+        int mask = capacity() - 1;
+        int hole = slot;
+        int i = (hole + 1) & mask;
+        while (!isEmpty(i)) {
+            int home = HashEngine.indexFor(hashAt(i), capacity());
+            // move i into hole unless its home lies cyclically in (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                move(i, hole);
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        clear(hole);
+    }
+
+    /** Histogram of probe lengths: a key found in its home slot has length 1. */
+    final ChainStats chainStats() {
+        int capacity = capacity();
+        int mask = capacity - 1;
+        int[] probeLengths = new int[capacity];
+        int max = 0;
+        for (int i = 0; i < capacity; i++) {
+            if (isEmpty(i)) continue;
+            probeLengths[i] = ((i - HashEngine.indexFor(hashAt(i), capacity)) & mask) + 1;
+            max = Math.max(max, probeLengths[i]);
+        }
+
+        int[] histogram = new int[max + 1];
+        for (int len : probeLengths) {
+            histogram[len]++;
+        }
+        return new ChainStats(capacity, histogram);
+    }
+}
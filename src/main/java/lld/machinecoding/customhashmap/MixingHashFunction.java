@@ -0,0 +1,57 @@
+package lld.machinecoding.customhashmap;
+
+/**
+ * MurmurHash3 (x86_32) body over the UTF-16 chars of the key, two chars per
+ * block, followed by the fmix32 finalizer. The seed is per map instance, so
+ * a key set that collides in one map does not collide in the next.
+ */
+class MixingHashFunction implements HashFunction {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private final int seed;
+
+    MixingHashFunction(int seed) {
+        this.seed = seed;
+    }
+
+    int seed() {
+        return seed;
+    }
+
+    @Override
+    public int hash(String key) {
+        int h = seed;
+        int len = key.length();
+        int i = 0;
+
+        for (; i + 1 < len; i += 2) {
+            int k = key.charAt(i) | (key.charAt(i + 1) << 16);
+            h ^= mixK(k);
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+
+        if (i < len) {
+            h ^= mixK(key.charAt(i));
+        }
+
+        return fmix32(h ^ (len * 2));
+    }
+
+    private static int mixK(int k) {
+        k *= C1;
+        k = Integer.rotateLeft(k, 15);
+        return k * C2;
+    }
+
+    private static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,245 @@
+package lld.machinecoding.customhashmap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only record store for {@link OffHeapEngine}, laid out in fixed-size
+ * chunks of direct or memory-mapped memory. A record is addressed by a global
+ * {@code long} offset ({@code chunk * chunkSize + position}) and never straddles
+ * two chunks. Direct chunks are small so an empty map stays cheap; mapped chunks
+ * are large so a big file needs few mappings.
+ *
+ * Record layout:
+ * <pre>
+ *   int  hash
+ *   int  keyLength        (UTF-8 bytes)
+ *   int  valueLength      (UTF-8 bytes)
+ *   int  valueCapacity    (bytes reserved for the value)
+ *   byte state            (LIVE / DEAD; 0 marks unused chunk tail)
+ *   key bytes, value bytes
+ * </pre>
+ */
+class OffHeapArena {
+
+    static final int DIRECT_CHUNK_SIZE = 1 << 20;   // 1 MiB
+    static final int MAPPED_CHUNK_SIZE = 1 << 26;   // 64 MiB
+
+    private static final int HASH = 0;
+    private static final int KEY_LENGTH = 4;
+    private static final int VALUE_LENGTH = 8;
+    private static final int VALUE_CAPACITY = 12;
+    private static final int STATE = 16;
+    private static final int RECORD_HEADER = 17;
+
+    private static final byte LIVE = 1;
+    private static final byte DEAD = 2;
+
+    private final FileChannel channel;   // null → anonymous direct memory
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long end;
+
+    OffHeapArena(FileChannel channel, long end) {
+        this.channel = channel;
+        this.chunkSize = channel == null ? DIRECT_CHUNK_SIZE : MAPPED_CHUNK_SIZE;
+        this.end = end;
+        // map every chunk that already holds records
+        while ((long) chunks.size() * chunkSize < end) {
+            addChunk();
+        }
+    }
+
+    long end() {
+        return end;
+    }
+
+    long append(int hash, byte[] key, byte[] value) {
+        int length = RECORD_HEADER + key.length + value.length;
+        if (length > chunkSize) {
+            throw new IllegalArgumentException("Entry of " + length + " bytes exceeds arena chunk size");
+        }
+
+        int position = position(end);
+        long mapped = (long) chunks.size() * chunkSize;
+        if (end == mapped || chunkSize - position < length) {
+            // abandon the chunk tail (its state byte stays 0) and start a fresh chunk
+            end = mapped;
+            addChunk();
+            position = 0;
+        }
+
+        long offset = end;
+        ByteBuffer chunk = chunk(offset);
+        chunk.putInt(position + HASH, hash);
+        chunk.putInt(position + KEY_LENGTH, key.length);
+        chunk.putInt(position + VALUE_LENGTH, value.length);
+        chunk.putInt(position + VALUE_CAPACITY, value.length);
+        chunk.put(position + RECORD_HEADER, key);
+        chunk.put(position + RECORD_HEADER + key.length, value);
+        chunk.put(position + STATE, LIVE);
+
+        end += length;
+        return offset;
+    }
+
+    int hash(long offset) {
+        return chunk(offset).getInt(position(offset) + HASH);
+    }
+
+    boolean keyEquals(long offset, byte[] key) {
+        ByteBuffer chunk = chunk(offset);
+        int position = position(offset);
+        if (chunk.getInt(position + KEY_LENGTH) != key.length) return false;
+
+        int base = position + RECORD_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (chunk.get(base + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    String key(long offset) {
+        ByteBuffer chunk = chunk(offset);
+        int position = position(offset);
+        byte[] key = new byte[chunk.getInt(position + KEY_LENGTH)];
+        chunk.get(position + RECORD_HEADER, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    String value(long offset) {
+        ByteBuffer chunk = chunk(offset);
+        int position = position(offset);
+        byte[] value = new byte[chunk.getInt(position + VALUE_LENGTH)];
+        chunk.get(position + RECORD_HEADER + chunk.getInt(position + KEY_LENGTH), value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /** Overwrites the value in place when it fits, else relocates the record; returns its offset. */
+    long setValue(long offset, byte[] value) {
+        ByteBuffer chunk = chunk(offset);
+        int position = position(offset);
+
+        if (value.length <= chunk.getInt(position + VALUE_CAPACITY)) {
+            chunk.put(position + RECORD_HEADER + chunk.getInt(position + KEY_LENGTH), value);
+            chunk.putInt(position + VALUE_LENGTH, value.length);
+            return offset;
+        }
+
+        byte[] key = new byte[chunk.getInt(position + KEY_LENGTH)];
+        chunk.get(position + RECORD_HEADER, key);
+        long relocated = append(chunk.getInt(position + HASH), key, value);
+        kill(offset);
+        return relocated;
+    }
+
+    void kill(long offset) {
+        chunk(offset).put(position(offset) + STATE, DEAD);
+    }
+
+    boolean isLive(long offset) {
+        return chunk(offset).get(position(offset) + STATE) == LIVE;
+    }
+
+    /**
+     * Offset of the record after {@code offset}, skipping abandoned chunk tails,
+     * or {@link #end()} when there is none. Pass -1 to get the first record.
+     */
+    long next(long offset) {
+        long candidate;
+        if (offset < 0) {
+            candidate = 0;
+        } else {
+            ByteBuffer chunk = chunk(offset);
+            int position = position(offset);
+            candidate = offset + RECORD_HEADER
+                    + chunk.getInt(position + KEY_LENGTH)
+                    + chunk.getInt(position + VALUE_CAPACITY);
+        }
+
+        if (candidate >= end) return end;
+        int position = position(candidate);
+        if (chunkSize - position < RECORD_HEADER || chunk(candidate).get(position + STATE) == 0) {
+            candidate = candidate - position + chunkSize;
+        }
+        return Math.min(candidate, end);
+    }
+
+    /**
+     * After an unclean shutdown the recorded end may be stale. Walks forward over
+     * records whose state byte was written; the state byte is written last, so a
+     * record torn by the crash is treated as the end.
+     */
+    void recoverEnd() {
+        try {
+            long fileSize = channel.size();
+            while (end < fileSize) {
+                while ((long) chunks.size() * chunkSize <= end) {
+                    addChunk();
+                }
+                int position = position(end);
+                if (chunkSize - position >= RECORD_HEADER && chunk(end).get(position + STATE) != 0) {
+                    end += RECORD_HEADER
+                            + chunk(end).getInt(position + KEY_LENGTH)
+                            + chunk(end).getInt(position + VALUE_CAPACITY);
+                    continue;
+                }
+
+                // abandoned chunk tail: continue in the next chunk if it holds a record
+                long nextChunk = end - position + chunkSize;
+                if (nextChunk >= fileSize) break;
+                if (chunks.size() * (long) chunkSize <= nextChunk) {
+                    addChunk();
+                }
+                if (chunk(nextChunk).get(STATE) == 0) break;
+                end = nextChunk;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void force() {
+        if (channel == null) return;
+        for (ByteBuffer chunk : chunks) {
+            ((MappedByteBuffer) chunk).force();
+        }
+    }
+
+    /** Flushes mapped chunks and closes the backing file; the chunks stay readable until unmapped by GC. */
+    void close() {
+        if (channel == null) return;
+        force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addChunk() {
+        if (channel == null) {
+            chunks.add(ByteBuffer.allocateDirect(chunkSize));
+            return;
+        }
+        try {
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) chunks.size() * chunkSize, chunkSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer chunk(long offset) {
+        return chunks.get((int) (offset / chunkSize));
+    }
+
+    private int position(long offset) {
+        return (int) (offset % chunkSize);
+    }
+}
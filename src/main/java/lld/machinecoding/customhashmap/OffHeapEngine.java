@@ -0,0 +1,373 @@
+package lld.machinecoding.customhashmap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linear-probing table whose keys, values and slots all live outside the Java
+ * heap. Entries are UTF-8 encoded into an {@link OffHeapArena}; the table is a
+ * direct buffer of {@code long} slots holding {@code recordOffset + 1} (0 marks
+ * an empty slot), so the heap cost is constant however many entries are stored.
+ *
+ * With a directory, the arena ({@code data.bin}) and the table ({@code index.bin})
+ * are memory-mapped files. {@link #close()} records size, capacity and arena end
+ * in the index header. Reopening the directory then maps both files back as-is,
+ * with no rebuild. If the map was not closed cleanly, the header is still marked
+ * dirty and the table is rebuilt from the live records in the arena.
+ *
+ * Probing is shared with {@link OpenAddressingEngine} through {@link LinearProbeTable}.
+ *
+ * Values rewritten with a longer encoding are relocated; like removed entries,
+ * the old record is marked dead and its bytes are not reclaimed.
+ *
+ * Index layout:
+ * <pre>
+ *   long magic, int dirty, int hashKind, int seed, int capacity, int size, long arenaEnd
+ *   (padding to 64 bytes)
+ *   capacity × long slot
+ * </pre>
+ */
+class OffHeapEngine extends HashEngine {
+
+    static final String DATA_FILE = "data.bin";
+    static final String INDEX_FILE = "index.bin";
+
+    private static final long MAGIC = 0x43484d4f46464850L;   // "CHMOFFHP"
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_DIRTY = 8;
+    private static final int H_HASH_KIND = 12;
+    private static final int H_SEED = 16;
+    private static final int H_CAPACITY = 20;
+    private static final int H_SIZE = 24;
+    private static final int H_ARENA_END = 32;
+
+    private static final int HASH_MIXING = 1;
+    private static final int HASH_LEGACY = 2;
+
+    private final Path directory;          // null → anonymous direct memory
+    private final OffHeapArena arena;
+    private FileChannel indexChannel;
+    private FileChannel pendingIndexChannel;
+    private ByteBuffer index;
+    private int capacity;
+    private final Slots table = new Slots();
+
+    private OffHeapEngine(double minLoadFactor, double maxLoadFactor, HashFunction hashFunction,
+                          Path directory, FileChannel dataChannel, FileChannel indexChannel, ByteBuffer existingIndex) {
+        super(minLoadFactor, maxLoadFactor, hashFunction);
+        this.directory = directory;
+        this.indexChannel = indexChannel;
+
+        if (existingIndex == null) {
+            this.arena = new OffHeapArena(dataChannel, 0);
+            this.capacity = 2;   // initial bucketsCount = 2
+            this.index = newIndex(capacity);
+            publishIndex();
+            return;
+        }
+
+        this.arena = new OffHeapArena(dataChannel, existingIndex.getLong(H_ARENA_END));
+        this.index = existingIndex;
+        this.capacity = existingIndex.getInt(H_CAPACITY);
+        this.size = existingIndex.getInt(H_SIZE);
+
+        if (existingIndex.getInt(H_DIRTY) != 0) {
+            rebuildFromArena();
+        }
+        writeHeader(index, true);
+    }
+
+    /**
+     * Creates an engine in direct memory, or opens/creates one mapped onto
+     * {@code directory}. A reopened map keeps the hash function it was created
+     * with, so {@code hashFunction} only applies to new directories.
+     */
+    static OffHeapEngine open(double minLoadFactor, double maxLoadFactor, HashFunction hashFunction, Path directory) {
+        if (directory == null) {
+            return new OffHeapEngine(minLoadFactor, maxLoadFactor, hashFunction, null, null, null, null);
+        }
+
+        FileChannel data = null;
+        FileChannel indexChannel = null;
+        try {
+            Files.createDirectories(directory);
+            data = FileChannel.open(directory.resolve(DATA_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            Path indexPath = directory.resolve(INDEX_FILE);
+            if (Files.exists(indexPath) && Files.size(indexPath) >= HEADER_SIZE) {
+                indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                MappedByteBuffer existing = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+                if (existing.getLong(H_MAGIC) != MAGIC) {
+                    throw new IllegalStateException(indexPath + " is not a CustomHashMap index");
+                }
+                HashFunction stored = existing.getInt(H_HASH_KIND) == HASH_LEGACY
+                        ? HashFunction.legacy()
+                        : HashFunction.mixing(existing.getInt(H_SEED));
+                return new OffHeapEngine(minLoadFactor, maxLoadFactor, stored, directory, data, indexChannel, existing);
+            }
+
+            if (!(hashFunction instanceof MixingHashFunction) && !(hashFunction instanceof LegacyHashFunction)) {
+                throw new IllegalArgumentException("Mapped maps need a built-in HashFunction so it can be restored on reopen");
+            }
+            return new OffHeapEngine(minLoadFactor, maxLoadFactor, hashFunction, directory, data, null, null);
+        } catch (IOException e) {
+            closeAfterFailure(e, data, indexChannel);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            closeAfterFailure(e, data, indexChannel);
+            throw e;
+        }
+    }
+
+    // ---------------- Layout hooks ----------------
+
+    @Override
+    boolean insert(int hash, String key, String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+
+        int i = table.probe(hash, keyBytes);
+        if (i >= 0) {
+            long offset = slot(index, i) - 1;
+            long updated = arena.setValue(offset, valueBytes);
+            if (updated != offset) {
+                setSlot(index, i, updated + 1);
+            }
+            return false;
+        }
+
+        setSlot(index, -i - 1, arena.append(hash, keyBytes, valueBytes) + 1);
+        return true;
+    }
+
+    @Override
+    String lookup(int hash, String key) {
+        int i = table.find(hash, key.getBytes(StandardCharsets.UTF_8));
+        return i < 0 ? null : arena.value(slot(index, i) - 1);
+    }
+
+    @Override
+    String delete(int hash, String key) {
+        int i = table.find(hash, key.getBytes(StandardCharsets.UTF_8));
+        if (i < 0) return null;
+
+        long offset = slot(index, i) - 1;
+        String removed = arena.value(offset);
+        arena.kill(offset);
+        table.removeAt(i);
+        return removed;
+    }
+
+    @Override
+    List<String> getBucketKeys(int bucketIndex) {
+        List<String> result = new ArrayList<>();
+
+        if (bucketIndex < 0 || bucketIndex >= capacity) {
+            return result;
+        }
+
+        // each slot holds at most one key
+        long slot = slot(index, bucketIndex);
+        if (slot != 0) {
+            result.add(arena.key(slot - 1));
+        }
+        return result;
+    }
+
+    @Override
+    ChainStats chainStats() {
+        return table.chainStats();
+    }
+
+    @Override
+    int bucketsCount() {
+        return capacity;
+    }
+
+    @Override
+    int minBucketsFor(int entries) {
+        // always keep one empty slot so a miss probe terminates
+        return entries + 1;
+    }
+
+    @Override
+    void resize(int newBucketCount) {
+        if (newBucketCount < 2) return;
+
+        ByteBuffer oldIndex = index;
+        int oldCapacity = capacity;
+        index = newIndex(newBucketCount);
+        capacity = newBucketCount;
+
+        for (int i = 0; i < oldCapacity; i++) {
+            long slot = slot(oldIndex, i);
+            if (slot != 0) {
+                place(slot);
+            }
+        }
+        publishIndex();
+    }
+
+    @Override
+    void close() {
+        if (directory == null) return;
+
+        arena.close();
+        writeHeader(index, false);
+        ((MappedByteBuffer) index).force();
+        try {
+            indexChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---------------- Helpers ----------------
+
+    private void place(long slot) {
+        setSlot(index, table.firstEmpty(arena.hash(slot - 1)), slot);
+    }
+
+    /**
+     * Re-indexes every live record after an unclean shutdown. A crash between a
+     * relocation's append and its kill, or a lost write of a DEAD byte, can leave two
+     * live records for one key; the arena is append-only, so the one at the higher
+     * offset is the newer and the older is killed.
+     */
+    private void rebuildFromArena() {
+        arena.recoverEnd();
+        capacity = 2;
+        size = 0;
+        index = newIndex(capacity);
+        publishIndex();
+
+        for (long offset = arena.next(-1); offset < arena.end(); offset = arena.next(offset)) {
+            if (!arena.isLive(offset)) continue;
+
+            int i = table.probe(arena.hash(offset), arena.key(offset).getBytes(StandardCharsets.UTF_8));
+            if (i >= 0) {
+                arena.kill(slot(index, i) - 1);
+                setSlot(index, i, offset + 1);
+                continue;
+            }
+            setSlot(index, -i - 1, offset + 1);
+            size++;
+            rehashIfNeeded();
+        }
+    }
+
+    private ByteBuffer newIndex(int slots) {
+        long bytes = HEADER_SIZE + (long) slots * Long.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap index cannot grow past " + slots / 2 + " buckets");
+        }
+        if (directory == null) {
+            return ByteBuffer.allocateDirect((int) bytes);
+        }
+
+        try {
+            pendingIndexChannel = FileChannel.open(directory.resolve(INDEX_FILE + ".tmp"),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return pendingIndexChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Makes the freshly built index current; for mapped maps, atomically swaps the index file. */
+    private void publishIndex() {
+        writeHeader(index, true);
+        if (directory == null) return;
+
+        try {
+            ((MappedByteBuffer) index).force();
+            Files.move(directory.resolve(INDEX_FILE + ".tmp"), directory.resolve(INDEX_FILE),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+            indexChannel = pendingIndexChannel;
+            pendingIndexChannel = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Releases whatever {@link #open} had opened before {@code failure}; close errors are attached to it. */
+    private static void closeAfterFailure(Exception failure, FileChannel... channels) {
+        for (FileChannel channel : channels) {
+            if (channel == null) continue;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    private void writeHeader(ByteBuffer table, boolean dirty) {
+        boolean mixing = hashFunction instanceof MixingHashFunction;
+        table.putLong(H_MAGIC, MAGIC);
+        table.putInt(H_DIRTY, dirty ? 1 : 0);
+        table.putInt(H_HASH_KIND, mixing ? HASH_MIXING : HASH_LEGACY);
+        table.putInt(H_SEED, mixing ? ((MixingHashFunction) hashFunction).seed() : 0);
+        table.putInt(H_CAPACITY, capacity);
+        table.putInt(H_SIZE, size);
+        table.putLong(H_ARENA_END, arena.end());
+    }
+
+    private static long slot(ByteBuffer table, int i) {
+        return table.getLong(HEADER_SIZE + (i << 3));
+    }
+
+    private static void setSlot(ByteBuffer table, int i, long value) {
+        table.putLong(HEADER_SIZE + (i << 3), value);
+    }
+
+    /** The current index as seen by {@link LinearProbeTable}; keys are compared as UTF-8. */
+    private final class Slots extends LinearProbeTable<byte[]> {
+        @Override
+        int capacity() {
+            return capacity;
+        }
+
+        @Override
+        boolean isEmpty(int i) {
+            return slot(index, i) == 0;
+        }
+
+        @Override
+        int hashAt(int i) {
+            return arena.hash(slot(index, i) - 1);
+        }
+
+        @Override
+        boolean holds(int i, int hash, byte[] key) {
+            long offset = slot(index, i) - 1;
+            return arena.hash(offset) == hash && arena.keyEquals(offset, key);
+        }
+
+        @Override
+        void move(int from, int to) {
+            setSlot(index, to, slot(index, from));
+        }
+
+        @Override
+        void clear(int i) {
+            setSlot(index, i, 0);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package lld.machinecoding.customhashmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linear-probing open addressing over parallel key/value/hash arrays.
+ * No per-entry nodes are allocated, and a probe walks adjacent array slots
+ * instead of chasing {@code next} pointers. Deletes use backward-shift so
+ * no tombstones are left behind and miss probes stay short.
+ *
+ * Bucket counts stay powers of two (2 → 4 → 8 ...), so the probe sequence
+ * wraps with the same mask {@link #indexFor} uses. The probing itself lives in
+ * {@link LinearProbeTable}, shared with {@link OffHeapEngine}.
+ */
+class OpenAddressingEngine extends HashEngine {
+
+    private String[] keys;
+    private String[] values;
+    private int[] hashes;
+    private final Slots table = new Slots();
+
+    OpenAddressingEngine(double minLoadFactor, double maxLoadFactor, HashFunction hashFunction) {
+        super(minLoadFactor, maxLoadFactor, hashFunction);
+        allocate(2);   // initial bucketsCount = 2
+    }
+
+    @Override
+    boolean insert(int hash, String key, String value) {
+        int i = table.probe(hash, key);
+        if (i >= 0) {
+            values[i] = value;
+            return false;
+        }
+
+        i = -i - 1;
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+        return true;
+    }
+
+    @Override
+    String lookup(int hash, String key) {
+        int slot = table.find(hash, key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    @Override
+    String delete(int hash, String key) {
+        int slot = table.find(hash, key);
+        if (slot < 0) return null;
+
+        String removed = values[slot];
+        table.removeAt(slot);
+        return removed;
+    }
+
+    @Override
+    List<String> getBucketKeys(int bucketIndex) {
+        List<String> result = new ArrayList<>();
+
+        if (bucketIndex < 0 || bucketIndex >= keys.length) {
+            return result;
+        }
+
+        // each slot holds at most one key
+        if (keys[bucketIndex] != null) {
+            result.add(keys[bucketIndex]);
+        }
+        return result;
+    }
+
+    @Override
+    ChainStats chainStats() {
+        return table.chainStats();
+    }
+
+    @Override
+    int bucketsCount() {
+        return keys.length;
+    }
+
+    @Override
+    int minBucketsFor(int entries) {
+        // always keep one empty slot so a miss probe terminates
+        return entries + 1;
+    }
+
+    @Override
+    void resize(int newBucketCount) {
+        if (newBucketCount < 2) return;
+
+        String[] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        allocate(newBucketCount);
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null) continue;
+            int i = table.firstEmpty(oldHashes[j]);
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+            hashes[i] = oldHashes[j];
+        }
+    }
+
+    private void allocate(int buckets) {
+        keys = new String[buckets];
+        values = new String[buckets];
+        hashes = new int[buckets];
+    }
+
+    /** The parallel arrays as seen by {@link LinearProbeTable}. */
+    private final class Slots extends LinearProbeTable<String> {
+        @Override
+        int capacity() {
+            return keys.length;
+        }
+
+        @Override
+        boolean isEmpty(int i) {
+            return keys[i] == null;
+        }
+
+        @Override
+        int hashAt(int i) {
+            return hashes[i];
+        }
+
+        @Override
+        boolean holds(int i, int hash, String key) {
+            return hashes[i] == hash && keys[i].equals(key);
+        }
+
+        @Override
+        void move(int from, int to) {
+            keys[to] = keys[from];
+            values[to] = values[from];
+            hashes[to] = hashes[from];
+        }
+
+        @Override
+        void clear(int i) {
+            keys[i] = null;
+            values[i] = null;
+        }
+    }
+}
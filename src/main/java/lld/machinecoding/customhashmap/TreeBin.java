@@ -0,0 +1,196 @@
+package lld.machinecoding.customhashmap;
+
+import java.util.List;
+
+/**
+ * Bucket contents once a chain grows past {@link #TREEIFY_THRESHOLD}: an AVL tree
+ * ordered by key. It sits in the bucket array in place of the chain head, so a
+ * bucket is either a plain {@link Entry} chain or a single TreeBin.
+ *
+ * Lookups cost O(log n) key comparisons instead of O(n), and an in-order walk
+ * yields the bucket's keys already sorted.
+ */
+class TreeBin extends Entry {
+
+    static final int TREEIFY_THRESHOLD = 8;
+    static final int UNTREEIFY_THRESHOLD = 6;
+
+    static final class TreeNode extends Entry {
+        TreeNode left;
+        TreeNode right;
+        int height = 1;
+
+        TreeNode(int hash, String key, String value) {
+            super(hash, key, value);
+        }
+    }
+
+    private TreeNode root;
+    private int count;
+
+    // results of the recursive insert/delete helpers
+    private boolean added;
+    private String removedValue;
+
+    TreeBin(Entry chain) {
+        super(0, null, null);
+        for (Entry curr = chain; curr != null; curr = curr.next) {
+            put(curr.hash, curr.key, curr.value);
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    /** Inserts or updates; returns true only when a new key was added. */
+    boolean put(int hash, String key, String value) {
+        added = false;
+        root = insert(root, hash, key, value);
+        if (added) count++;
+        return added;
+    }
+
+    String get(String key) {
+        TreeNode n = root;
+        while (n != null) {
+            int c = key.compareTo(n.key);
+            if (c == 0) return n.value;
+            n = c < 0 ? n.left : n.right;
+        }
+        return null;
+    }
+
+    /** Returns the removed value, or null when absent. */
+    String remove(String key) {
+        removedValue = null;
+        root = delete(root, key);
+        if (removedValue != null) count--;
+        return removedValue;
+    }
+
+    void keysInOrder(List<String> out) {
+        keysInOrder(root, out);
+    }
+
+    /** Dismantles the tree into a key-ordered chain of its own nodes and returns the head. */
+    Entry toChain() {
+        Entry head = unlink(root, null);
+        root = null;
+        count = 0;
+        return head;
+    }
+
+    // ---------------- AVL helpers ----------------
+
+    private TreeNode insert(TreeNode n, int hash, String key, String value) {
+        if (n == null) {
+            added = true;
+            return new TreeNode(hash, key, value);
+        }
+        int c = key.compareTo(n.key);
+        if (c < 0) {
+            n.left = insert(n.left, hash, key, value);
+        } else if (c > 0) {
+            n.right = insert(n.right, hash, key, value);
+        } else {
+            n.value = value;
+            return n;
+        }
+        return balance(n);
+    }
+
+    private TreeNode delete(TreeNode n, String key) {
+        if (n == null) return null;
+
+        int c = key.compareTo(n.key);
+        if (c < 0) {
+            n.left = delete(n.left, key);
+        } else if (c > 0) {
+            n.right = delete(n.right, key);
+        } else {
+            removedValue = n.value;
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+
+            // replace n with its in-order successor
+            TreeNode successor = n.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(n.right);
+            successor.left = n.left;
+            n = successor;
+        }
+        return balance(n);
+    }
+
+    private TreeNode deleteMin(TreeNode n) {
+        if (n.left == null) return n.right;
+        n.left = deleteMin(n.left);
+        return balance(n);
+    }
+
+    private TreeNode balance(TreeNode n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right)) {
+                n.left = rotateLeft(n.left);
+            }
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left)) {
+                n.right = rotateRight(n.right);
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private TreeNode rotateLeft(TreeNode n) {
+        TreeNode r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private TreeNode rotateRight(TreeNode n) {
+        TreeNode l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static void update(TreeNode n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+    }
+
+    private static int height(TreeNode n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void keysInOrder(TreeNode n, List<String> out) {
+        if (n == null) return;
+        keysInOrder(n.left, out);
+        out.add(n.key);
+        keysInOrder(n.right, out);
+    }
+
+    /** Reverse in-order walk that prepends, so the resulting chain ascends by key. */
+    private static Entry unlink(TreeNode n, Entry tail) {
+        if (n == null) return tail;
+        Entry head = unlink(n.right, tail);
+        TreeNode left = n.left;
+        n.left = null;
+        n.right = null;
+        n.next = head;
+        return unlink(left, n);
+    }
+}
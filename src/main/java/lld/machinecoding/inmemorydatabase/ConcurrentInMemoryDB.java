@@ -0,0 +1,194 @@
+package lld.machinecoding.inmemorydatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe counterpart of {@link InMemoryDB} built on multi-version concurrency control.
+ *
+ * Each field keeps an immutable, newest-first list of versions published through a
+ * volatile head, so readers never lock: a read at timestamp t returns the newest version
+ * written at or before t, and concurrent writes stamped after t cannot change that
+ * answer. Writers serialize per key on one of a fixed set of lock stripes, which also
+ * makes the compare-and-* operations genuinely atomic.
+ *
+ * Scans iterate a concurrent skip list and see a field created during the scan only if
+ * its first version is already visible at the scan timestamp.
+ */
+public class ConcurrentInMemoryDB {
+
+    /** One immutable version. {@code next} is only rewritten to unlink history no read can reach. */
+    static final class Version {
+        final int timestamp;
+        final int expiry;
+        final String value;
+        volatile Version next;
+
+        Version(int timestamp, int expiry, String value, Version next) {
+            this.timestamp = timestamp;
+            this.expiry = expiry;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /** Version history of one field; mutated only under its key's stripe lock. */
+    static final class Field extends FieldHistory {
+        volatile Version head;
+        private int length;
+        private int compactAt = MIN_COMPACT_LENGTH;
+
+        @Override
+        String valueAt(int timestamp) {
+            for (Version v = head; v != null; v = v.next) {
+                if (v.timestamp <= timestamp && timestamp < v.expiry) {
+                    return v.value;
+                }
+            }
+            return null;
+        }
+
+        void append(int timestamp, String value, int expiry, int horizon) {
+            head = new Version(timestamp, expiry, value, head);
+
+            // amortized: compact only once the list doubled since the last pass
+            if (++length >= compactAt && horizon != Integer.MIN_VALUE) {
+                length = compact(horizon);
+                compactAt = Math.max(MIN_COMPACT_LENGTH, length * 2);
+            }
+        }
+
+        /**
+         * Unlinks versions no read at or after {@code horizon} can return (see
+         * {@link VersionChain#compact}). Readers already past an unlinked node keep
+         * walking its own, unchanged {@code next}. Returns the versions kept.
+         */
+        private int compact(int horizon) {
+            Version kept = head;
+            int count = 1;
+            while (kept.timestamp > horizon || kept.expiry != Integer.MAX_VALUE) {
+                Version v = kept.next;
+                if (v == null) return count;
+                if (v.expiry <= horizon) {
+                    kept.next = v.next;
+                    continue;
+                }
+                kept = v;
+                count++;
+            }
+            kept.next = null;   // shadows everything older
+            return count;
+        }
+    }
+
+    private static final int MIN_COMPACT_LENGTH = 8;
+
+    private final ConcurrentMap<String, KeyRecord<Field>> store = new ConcurrentHashMap<>();
+    private final Object[] stripes;
+    private final int lookBackWindow;
+
+    public ConcurrentInMemoryDB() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /** Same look-back contract as {@link InMemoryDB#InMemoryDB(int)}. */
+    public ConcurrentInMemoryDB(int lookBackWindow) {
+        this.lookBackWindow = lookBackWindow;
+
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        stripes = new Object[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /* ---------------- Level 1 ---------------- */
+
+    public void set(int timestamp, String key, String field, String value) {
+        synchronized (lockFor(key)) {
+            setLocked(timestamp, key, field, value, Integer.MAX_VALUE);
+        }
+    }
+
+    public boolean compareAndSet(int timestamp, String key, String field, int expectedValue) {
+        synchronized (lockFor(key)) {
+            String cur = get(timestamp, key, field);
+            if (cur == null || Integer.parseInt(cur) != expectedValue) return false;
+            setLocked(timestamp, key, field, cur, Integer.MAX_VALUE);
+            return true;
+        }
+    }
+
+    public boolean compareAndDelete(int timestamp, String key, String field, int expectedValue) {
+        synchronized (lockFor(key)) {
+            String cur = get(timestamp, key, field);
+            if (cur == null || Integer.parseInt(cur) != expectedValue) return false;
+            setLocked(timestamp, key, field, null, Integer.MAX_VALUE);
+            return true;
+        }
+    }
+
+    public String get(int timestamp, String key, String field) {
+        KeyRecord<Field> record = store.get(key);
+        if (record == null) return null;
+
+        Field history = record.fields.get(field);
+        if (history == null) return null;
+        return history.valueAt(timestamp);
+    }
+
+    /* ---------------- Level 2 ---------------- */
+
+    public List<String> scan(int timestamp, String key) {
+        KeyRecord<Field> record = store.get(key);
+        return record == null ? new ArrayList<>() : record.scan(timestamp);
+    }
+
+    public List<String> scanByPrefix(int timestamp, String key, String prefix) {
+        KeyRecord<Field> record = store.get(key);
+        return record == null ? new ArrayList<>() : record.scanByPrefix(timestamp, prefix);
+    }
+
+    /* ---------------- Level 3 ---------------- */
+
+    public void setWithTTL(int timestamp, String key, String field, String value, int ttl) {
+        synchronized (lockFor(key)) {
+            setLocked(timestamp, key, field, value, timestamp + ttl);
+        }
+    }
+
+    public boolean compareAndSetWithTTL(
+            int timestamp,
+            String key,
+            String field,
+            int expectedValue,
+            int newValue,
+            int ttl
+    ) {
+        synchronized (lockFor(key)) {
+            String cur = get(timestamp, key, field);
+            if (cur == null || Integer.parseInt(cur) != expectedValue) return false;
+            setLocked(timestamp, key, field, String.valueOf(newValue), timestamp + ttl);
+            return true;
+        }
+    }
+
+    /* ---------------- Helpers ---------------- */
+
+    /** Caller holds {@code lockFor(key)}. */
+    private void setLocked(int timestamp, String key, String field, String value, int expiry) {
+        Field history = store.computeIfAbsent(key, k -> KeyRecord.concurrent()).fieldFor(field, Field::new);
+        history.append(timestamp, value, expiry, horizon(timestamp));
+    }
+
+    private Object lockFor(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private int horizon(int timestamp) {
+        return FieldHistory.horizon(timestamp, lookBackWindow);
+    }
+}
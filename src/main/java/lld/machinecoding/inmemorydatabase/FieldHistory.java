@@ -0,0 +1,20 @@
+package lld.machinecoding.inmemorydatabase;
+
+/**
+ * Version history of one field, as seen by the code shared between {@link InMemoryDB}
+ * and {@link ConcurrentInMemoryDB}: point reads and look-back compaction bounds.
+ */
+abstract class FieldHistory {
+
+    /** Value visible at {@code timestamp}, or null (never written, deleted or expired). */
+    abstract String valueAt(int timestamp);
+
+    /**
+     * Oldest timestamp look-back reads must still answer correctly, or
+     * {@code Integer.MIN_VALUE} when full history is kept.
+     */
+    static int horizon(int timestamp, int lookBackWindow) {
+        if (lookBackWindow == Integer.MAX_VALUE) return Integer.MIN_VALUE;
+        return (int) Math.max(Integer.MIN_VALUE, (long) timestamp - lookBackWindow);
+    }
+}
@@ -1,22 +1,70 @@
 package lld.machinecoding.inmemorydatabase;
 
+import java.nio.file.Path;
 import java.util.*;
 
-public class InMemoryDB {
+public class InMemoryDB implements AutoCloseable {
 
-    static class ValueEntry {
-        int timestamp;
-        String value;
-        int expiry;
+    /** A TTL write whose field the reaper should revisit once {@code expiry} falls behind the horizon. */
+    static class ExpiryTask {
+        final int expiry;
+        final String key;
+        final String field;
 
-        ValueEntry(int timestamp, String value, int expiry) {
-            this.timestamp = timestamp;
-            this.value = value;
+        ExpiryTask(int expiry, String key, String field) {
             this.expiry = expiry;
+            this.key = key;
+            this.field = field;
         }
     }
 
-    private final Map<String, Map<String, List<ValueEntry>>> store = new HashMap<>();
+    /** Expiry tasks the reaper processes per write, bounding the work any one call absorbs. */
+    private static final int REAP_BUDGET_PER_WRITE = 8;
+
+    private final Map<String, KeyRecord<VersionChain>> store = new HashMap<>();
+    private final PriorityQueue<ExpiryTask> expiryQueue = new PriorityQueue<>(Comparator.comparingInt(t -> t.expiry));
+    private final int lookBackWindow;
+
+    private WriteAheadLog wal;                  // null → purely in-memory
+    private PersistenceOptions persistence;
+    private int writesSinceSnapshot;
+
+    public InMemoryDB() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Look-back reads are only guaranteed for timestamps within {@code lookBackWindow}
+     * of the newest write to a field; older versions are compacted away, and TTL'd
+     * versions are reaped once they expired before that window.
+     * {@code Integer.MAX_VALUE} keeps full history (nothing is ever reaped).
+     */
+    public InMemoryDB(int lookBackWindow) {
+        this.lookBackWindow = lookBackWindow;
+    }
+
+    /**
+     * Opens a durable database in {@code directory}: loads the latest snapshot, replays
+     * the write-ahead log written after it, then logs every further write. Recovery
+     * time is bounded by snapshot size plus the writes since that snapshot.
+     */
+    public static InMemoryDB open(Path directory, int lookBackWindow, PersistenceOptions options) {
+        InMemoryDB db = new InMemoryDB(lookBackWindow);
+        // wal is still null here, so replayed writes are applied without being logged again
+        db.wal = WriteAheadLog.recover(directory, options, new WriteAheadLog.Replayer() {
+            @Override
+            public void apply(int timestamp, String key, String field, String value, int expiry) {
+                db.setInternal(timestamp, key, field, value, expiry);
+            }
+
+            @Override
+            public void applyNumber(int timestamp, String key, String field, long value, int expiry) {
+                db.setNumberInternal(timestamp, key, field, value, expiry);
+            }
+        });
+        db.persistence = options;
+        return db;
+    }
 
     /* ---------------- Level 1 ---------------- */
 
@@ -25,65 +73,42 @@ public class InMemoryDB {
     }
 
     public boolean compareAndSet(int timestamp, String key, String field, int expectedValue) {
-        String cur = get(timestamp, key, field);
-        if (cur == null || Integer.parseInt(cur) != expectedValue) return false;
-        set(timestamp, key, field, cur);
+        VersionChain history = chain(key, field);
+        int i = history == null ? -1 : history.indexAt(timestamp);
+        if (!holds(history, i, expectedValue)) return false;
+
+        if (history.isNumber(i)) {
+            setNumberInternal(timestamp, key, field, history.number(i), Integer.MAX_VALUE);
+        } else {
+            setInternal(timestamp, key, field, history.value(i), Integer.MAX_VALUE);
+        }
         return true;
     }
 
     public boolean compareAndDelete(int timestamp, String key, String field, int expectedValue) {
-        String cur = get(timestamp, key, field);
-        if (cur == null || Integer.parseInt(cur) != expectedValue) return false;
+        VersionChain history = chain(key, field);
+        int i = history == null ? -1 : history.indexAt(timestamp);
+        if (!holds(history, i, expectedValue)) return false;
         setInternal(timestamp, key, field, null, Integer.MAX_VALUE);
         return true;
     }
 
     public String get(int timestamp, String key, String field) {
-        if (!store.containsKey(key)) return null;
-        if (!store.get(key).containsKey(field)) return null;
-
-        List<ValueEntry> history = store.get(key).get(field);
-        for (int i = history.size() - 1; i >= 0; i--) {
-            ValueEntry e = history.get(i);
-            if (e.timestamp <= timestamp && timestamp < e.expiry) {
-                return e.value;
-            }
-        }
-        return null;
+        VersionChain history = chain(key, field);
+        if (history == null) return null;
+        return history.valueAt(timestamp);
     }
 
     /* ---------------- Level 2 ---------------- */
 
     public List<String> scan(int timestamp, String key) {
-        List<String> res = new ArrayList<>();
-        if (!store.containsKey(key)) return res;
-
-        for (String field : store.get(key).keySet()) {
-            String val = get(timestamp, key, field);
-            if (val != null) {
-                res.add(field + "=" + val);
-            }
-        }
-
-        Collections.sort(res);
-        return res;
+        KeyRecord<VersionChain> record = store.get(key);
+        return record == null ? new ArrayList<>() : record.scan(timestamp);
     }
 
     public List<String> scanByPrefix(int timestamp, String key, String prefix) {
-        List<String> res = new ArrayList<>();
-        if (!store.containsKey(key)) return res;
-
-        for (String field : store.get(key).keySet()) {
-            if (field.startsWith(prefix)) {
-                String val = get(timestamp, key, field);
-                if (val != null) {
-                    res.add(field + "=" + val);
-                }
-            }
-        }
-
-        Collections.sort(res);
-        return res;
+        KeyRecord<VersionChain> record = store.get(key);
+        return record == null ? new ArrayList<>() : record.scanByPrefix(timestamp, prefix);
     }
 
     /* ---------------- Level 3 ---------------- */
@@ -100,18 +125,173 @@ public class InMemoryDB {
             int newValue,
             int ttl
     ) {
-        String cur = get(timestamp, key, field);
-        if (cur == null || Integer.parseInt(cur) != expectedValue) return false;
-        setInternal(timestamp, key, field, String.valueOf(newValue), timestamp + ttl);
+        VersionChain history = chain(key, field);
+        int i = history == null ? -1 : history.indexAt(timestamp);
+        if (!holds(history, i, expectedValue)) return false;
+        setNumberInternal(timestamp, key, field, newValue, timestamp + ttl);
+        return true;
+    }
+
+    /* ---------------- Counters ---------------- */
+
+    /** Stores {@code value} in a primitive slot; {@link #get} still returns its decimal form. */
+    public void setLong(int timestamp, String key, String field, long value) {
+        setNumberInternal(timestamp, key, field, value, Integer.MAX_VALUE);
+    }
+
+    /** Numeric value visible at {@code timestamp}, or {@code defaultValue}; string values are parsed. */
+    public long getLong(int timestamp, String key, String field, long defaultValue) {
+        VersionChain history = chain(key, field);
+        int i = history == null ? -1 : history.indexAt(timestamp);
+        return numberAt(history, i, defaultValue);
+    }
+
+    /**
+     * Adds {@code delta} to the value visible at {@code timestamp} (0 when there is none)
+     * and returns the result. A TTL on the current value carries over to the new one.
+     */
+    public long increment(int timestamp, String key, String field, long delta) {
+        VersionChain history = chain(key, field);
+        int i = history == null ? -1 : history.indexAt(timestamp);
+        long next = numberAt(history, i, 0) + delta;
+        int expiry = i < 0 ? Integer.MAX_VALUE : history.expiry(i);
+
+        setNumberInternal(timestamp, key, field, next, expiry);
+        return next;
+    }
+
+    public boolean compareAndSetLong(int timestamp, String key, String field, long expectedValue, long newValue) {
+        VersionChain history = chain(key, field);
+        int i = history == null ? -1 : history.indexAt(timestamp);
+        if (!holds(history, i, expectedValue)) return false;
+        setNumberInternal(timestamp, key, field, newValue, Integer.MAX_VALUE);
         return true;
     }
 
 
+    /* ---------------- Expiry ---------------- */
+
+    /**
+     * Processes up to {@code maxTasks} due expiry tasks as of {@code timestamp}:
+     * compacts each field's versions and unlinks fields and keys left with nothing
+     * visible. Every write already runs a small slice of this; call it directly to
+     * reclaim memory while the database is idle. Returns the number of tasks processed.
+     */
+    public int reapExpired(int timestamp, int maxTasks) {
+        int horizon = horizon(timestamp);
+        int processed = 0;
+
+        while (processed < maxTasks && !expiryQueue.isEmpty() && expiryQueue.peek().expiry <= horizon) {
+            ExpiryTask task = expiryQueue.poll();
+            processed++;
+
+            KeyRecord<VersionChain> record = store.get(task.key);
+            if (record == null) continue;
+            VersionChain history = record.fields.get(task.field);
+            if (history == null) continue;
+
+            history.compact(horizon);
+            if (history.isDeadAfter(horizon) && record.remove(task.field)) {
+                store.remove(task.key);
+            }
+        }
+        return processed;
+    }
+
+    /* ---------------- Persistence ---------------- */
+
+    /**
+     * Writes the current state as a compact snapshot and drops the log it supersedes.
+     * Runs inline; {@link PersistenceOptions#snapshotEveryWrites} triggers it automatically.
+     */
+    public void snapshot() {
+        if (wal == null) {
+            throw new IllegalStateException("snapshot() needs a database opened with InMemoryDB.open");
+        }
+
+        long covered = wal.rotate();
+        wal.writeSnapshot(covered, sink -> {
+            for (Map.Entry<String, KeyRecord<VersionChain>> r : store.entrySet()) {
+                for (Map.Entry<String, VersionChain> f : r.getValue().fields.entrySet()) {
+                    VersionChain history = f.getValue();
+                    for (int i = 0; i < history.size(); i++) {
+                        if (history.isNumber(i)) {
+                            sink.applyNumber(history.timestamp(i), r.getKey(), f.getKey(), history.number(i), history.expiry(i));
+                        } else {
+                            sink.apply(history.timestamp(i), r.getKey(), f.getKey(), history.value(i), history.expiry(i));
+                        }
+                    }
+                }
+            }
+        });
+        writesSinceSnapshot = 0;
+    }
+
+    /** Forces any partially filled group commit out to the log. */
+    public void sync() {
+        if (wal != null) wal.commit();
+    }
+
+    @Override
+    public void close() {
+        if (wal != null) wal.close();
+    }
+
     /* ---------------- Helpers ---------------- */
     private void setInternal(int timestamp, String key, String field, String value, int expiry) {
-        store
-                .computeIfAbsent(key, k -> new HashMap<>())
-                .computeIfAbsent(field, f -> new ArrayList<>())
-                .add(new ValueEntry(timestamp, value, expiry));
+        if (wal != null) {
+            wal.append(timestamp, key, field, value, expiry);
+        }
+        chainFor(key, field).append(timestamp, value, expiry, horizon(timestamp));
+        afterWrite(timestamp, key, field, expiry);
+    }
+
+    private void setNumberInternal(int timestamp, String key, String field, long value, int expiry) {
+        if (wal != null) {
+            wal.appendNumber(timestamp, key, field, value, expiry);
+        }
+        chainFor(key, field).appendNumber(timestamp, value, expiry, horizon(timestamp));
+        afterWrite(timestamp, key, field, expiry);
+    }
+
+    private VersionChain chain(String key, String field) {
+        KeyRecord<VersionChain> record = store.get(key);
+        return record == null ? null : record.fields.get(field);
+    }
+
+    private VersionChain chainFor(String key, String field) {
+        return store.computeIfAbsent(key, k -> KeyRecord.plain()).fieldFor(field, VersionChain::new);
+    }
+
+    private void afterWrite(int timestamp, String key, String field, int expiry) {
+        // only worth tracking when expired versions can ever fall out of the look-back window
+        if (expiry != Integer.MAX_VALUE && lookBackWindow != Integer.MAX_VALUE) {
+            expiryQueue.offer(new ExpiryTask(expiry, key, field));
+        }
+        reapExpired(timestamp, REAP_BUDGET_PER_WRITE);
+
+        if (wal != null && persistence.snapshotEveryWrites > 0
+                && ++writesSinceSnapshot >= persistence.snapshotEveryWrites) {
+            snapshot();
+        }
+    }
+
+    /** Whether version {@code i} exists, is not a delete, and numerically equals {@code expected}. */
+    private static boolean holds(VersionChain history, int i, long expected) {
+        if (i < 0) return false;
+        if (history.isNumber(i)) return history.number(i) == expected;
+        String cur = history.value(i);
+        return cur != null && Long.parseLong(cur) == expected;
+    }
+
+    private static long numberAt(VersionChain history, int i, long defaultValue) {
+        if (i < 0) return defaultValue;
+        if (history.isNumber(i)) return history.number(i);
+        String cur = history.value(i);
+        return cur == null ? defaultValue : Long.parseLong(cur);
+    }
+
+    private int horizon(int timestamp) {
+        return FieldHistory.horizon(timestamp, lookBackWindow);
     }
 }
@@ -0,0 +1,86 @@
+package lld.machinecoding.inmemorydatabase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Fields of one key: hash lookup by name plus a sorted secondary index for scans.
+ * {@link InMemoryDB} uses plain maps; {@link ConcurrentInMemoryDB} uses concurrent
+ * ones so scans can iterate while writers add fields.
+ *
+ * @param <H> per-field version history
+ */
+final class KeyRecord<H extends FieldHistory> {
+
+    final Map<String, H> fields;
+    // keyed by "field=" so iteration order is exactly the sorted "field=value" output
+    final NavigableMap<String, H> scanIndex;
+
+    private KeyRecord(Map<String, H> fields, NavigableMap<String, H> scanIndex) {
+        this.fields = fields;
+        this.scanIndex = scanIndex;
+    }
+
+    static <H extends FieldHistory> KeyRecord<H> plain() {
+        return new KeyRecord<>(new HashMap<>(), new TreeMap<>());
+    }
+
+    static <H extends FieldHistory> KeyRecord<H> concurrent() {
+        return new KeyRecord<>(new ConcurrentHashMap<>(), new ConcurrentSkipListMap<>());
+    }
+
+    /** History of {@code field}, created and indexed on first use. */
+    H fieldFor(String field, Supplier<H> newHistory) {
+        H history = fields.get(field);
+        if (history == null) {
+            history = newHistory.get();
+            fields.put(field, history);
+            scanIndex.put(field + "=", history);
+        }
+        return history;
+    }
+
+    /** Unlinks {@code field}; returns whether the key has no fields left. */
+    boolean remove(String field) {
+        fields.remove(field);
+        scanIndex.remove(field + "=");
+        return fields.isEmpty();
+    }
+
+    List<String> scan(int timestamp) {
+        List<String> res = new ArrayList<>();
+
+        // index order is already output order → no sort
+        for (Map.Entry<String, H> e : scanIndex.entrySet()) {
+            String val = e.getValue().valueAt(timestamp);
+            if (val != null) {
+                res.add(e.getKey() + val);
+            }
+        }
+        return res;
+    }
+
+    List<String> scanByPrefix(int timestamp, String prefix) {
+        List<String> res = new ArrayList<>();
+
+        // fields sharing a prefix are contiguous in the index: seek, then stop at the first miss
+        for (Map.Entry<String, H> e : scanIndex.tailMap(prefix, true).entrySet()) {
+            String indexKey = e.getKey();
+            if (!indexKey.startsWith(prefix)) break;
+            if (indexKey.length() == prefix.length()) continue;   // prefix ended in '=', field is shorter
+
+            String val = e.getValue().valueAt(timestamp);
+            if (val != null) {
+                res.add(indexKey + val);
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,28 @@
+package lld.machinecoding.inmemorydatabase;
+
+/** Durability knobs for a persistent {@link InMemoryDB}. */
+public class PersistenceOptions {
+
+    final int groupCommitSize;
+    final boolean fsync;
+    final int snapshotEveryWrites;
+
+    /**
+     * @param groupCommitSize     writes buffered before the log is written out together (1 = every write)
+     * @param fsync               force each group commit to disk, not just to the OS page cache
+     * @param snapshotEveryWrites logged writes between automatic snapshots (0 = only on {@link InMemoryDB#snapshot()})
+     */
+    public PersistenceOptions(int groupCommitSize, boolean fsync, int snapshotEveryWrites) {
+        if (groupCommitSize < 1) {
+            throw new IllegalArgumentException("groupCommitSize must be at least 1");
+        }
+        this.groupCommitSize = groupCommitSize;
+        this.fsync = fsync;
+        this.snapshotEveryWrites = snapshotEveryWrites;
+    }
+
+    /** Group commits of 64 writes, fsync'd, with a snapshot every 100k writes. */
+    public static PersistenceOptions defaults() {
+        return new PersistenceOptions(64, true, 100_000);
+    }
+}
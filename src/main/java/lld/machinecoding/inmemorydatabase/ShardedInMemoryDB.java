@@ -0,0 +1,211 @@
+package lld.machinecoding.inmemorydatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Front end that hash-partitions the database across independent {@link InMemoryDB}
+ * shards, each confined to its own single-threaded executor, so a process can use
+ * all cores without any locking inside the shards.
+ *
+ * A write or point read touches only the shard owning its (key, field) pair. Since a
+ * key's fields are spread over every shard, {@code scan}/{@code scanByPrefix} fan out
+ * to all shards in parallel and k-way merge their already sorted results.
+ */
+public class ShardedInMemoryDB implements AutoCloseable {
+
+    private final InMemoryDB[] shards;
+    private final ExecutorService[] executors;
+
+    public ShardedInMemoryDB(int shardCount) {
+        this(shardCount, Integer.MAX_VALUE);
+    }
+
+    /** {@code lookBackWindow} applies to every shard; see {@link InMemoryDB#InMemoryDB(int)}. */
+    public ShardedInMemoryDB(int shardCount, int lookBackWindow) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+
+        shards = new InMemoryDB[shardCount];
+        executors = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new InMemoryDB(lookBackWindow);
+            String name = "imdb-shard-" + i;
+            executors[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /* ---------------- Level 1 ---------------- */
+
+    public void set(int timestamp, String key, String field, String value) {
+        int s = shardFor(key, field);
+        call(s, () -> {
+            shards[s].set(timestamp, key, field, value);
+            return null;
+        });
+    }
+
+    public boolean compareAndSet(int timestamp, String key, String field, int expectedValue) {
+        int s = shardFor(key, field);
+        return call(s, () -> shards[s].compareAndSet(timestamp, key, field, expectedValue));
+    }
+
+    public boolean compareAndDelete(int timestamp, String key, String field, int expectedValue) {
+        int s = shardFor(key, field);
+        return call(s, () -> shards[s].compareAndDelete(timestamp, key, field, expectedValue));
+    }
+
+    public String get(int timestamp, String key, String field) {
+        int s = shardFor(key, field);
+        return call(s, () -> shards[s].get(timestamp, key, field));
+    }
+
+    /* ---------------- Level 2 ---------------- */
+
+    public List<String> scan(int timestamp, String key) {
+        List<Future<List<String>>> parts = new ArrayList<>(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            InMemoryDB shard = shards[s];
+            parts.add(executors[s].submit(() -> shard.scan(timestamp, key)));
+        }
+        return merge(parts);
+    }
+
+    public List<String> scanByPrefix(int timestamp, String key, String prefix) {
+        List<Future<List<String>>> parts = new ArrayList<>(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            InMemoryDB shard = shards[s];
+            parts.add(executors[s].submit(() -> shard.scanByPrefix(timestamp, key, prefix)));
+        }
+        return merge(parts);
+    }
+
+    /* ---------------- Level 3 ---------------- */
+
+    public void setWithTTL(int timestamp, String key, String field, String value, int ttl) {
+        int s = shardFor(key, field);
+        call(s, () -> {
+            shards[s].setWithTTL(timestamp, key, field, value, ttl);
+            return null;
+        });
+    }
+
+    public boolean compareAndSetWithTTL(
+            int timestamp,
+            String key,
+            String field,
+            int expectedValue,
+            int newValue,
+            int ttl
+    ) {
+        int s = shardFor(key, field);
+        return call(s, () -> shards[s].compareAndSetWithTTL(timestamp, key, field, expectedValue, newValue, ttl));
+    }
+
+    /* ---------------- Counters ---------------- */
+
+    public void setLong(int timestamp, String key, String field, long value) {
+        int s = shardFor(key, field);
+        call(s, () -> {
+            shards[s].setLong(timestamp, key, field, value);
+            return null;
+        });
+    }
+
+    public long getLong(int timestamp, String key, String field, long defaultValue) {
+        int s = shardFor(key, field);
+        return call(s, () -> shards[s].getLong(timestamp, key, field, defaultValue));
+    }
+
+    public long increment(int timestamp, String key, String field, long delta) {
+        int s = shardFor(key, field);
+        return call(s, () -> shards[s].increment(timestamp, key, field, delta));
+    }
+
+    public boolean compareAndSetLong(int timestamp, String key, String field, long expectedValue, long newValue) {
+        int s = shardFor(key, field);
+        return call(s, () -> shards[s].compareAndSetLong(timestamp, key, field, expectedValue, newValue));
+    }
+
+    /** Stops the shard executors after the operations already queued on them. */
+    @Override
+    public void close() {
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    /* ---------------- Helpers ---------------- */
+
+    /** One cursor per shard result, ordered by its current element. */
+    private static final class Cursor {
+        final List<String> items;
+        int next;
+
+        Cursor(List<String> items) {
+            this.items = items;
+        }
+
+        String head() {
+            return items.get(next);
+        }
+    }
+
+    /** K-way merge of the per-shard results, each already sorted. */
+    private static List<String> merge(List<Future<List<String>>> parts) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(parts.size(), (a, b) -> a.head().compareTo(b.head()));
+        int total = 0;
+        for (Future<List<String>> part : parts) {
+            List<String> items = join(part);
+            if (!items.isEmpty()) {
+                heads.add(new Cursor(items));
+                total += items.size();
+            }
+        }
+
+        List<String> res = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Cursor c = heads.poll();
+            res.add(c.items.get(c.next++));
+            if (c.next < c.items.size()) {
+                heads.add(c);
+            }
+        }
+        return res;
+    }
+
+    private <T> T call(int shard, Callable<T> op) {
+        return join(executors[shard].submit(op));
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for shard", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private int shardFor(String key, String field) {
+        int h = 31 * key.hashCode() + field.hashCode();
+        h ^= h >>> 16;
+        return Math.floorMod(h, shards.length);
+    }
+}
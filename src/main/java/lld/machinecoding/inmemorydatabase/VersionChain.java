@@ -0,0 +1,169 @@
+package lld.machinecoding.inmemorydatabase;
+
+import java.util.Arrays;
+
+/**
+ * Version history of one field, stored as parallel primitive arrays in append
+ * order instead of one {@code ValueEntry} object per write.
+ *
+ * While timestamps arrive in non-decreasing order (the normal case), a read
+ * binary-searches for the newest version at or before the requested timestamp
+ * and only walks back past versions that have already expired at that time. An
+ * out-of-order write drops the chain back to the original backward scan.
+ *
+ * Numeric versions live in a parallel {@code long[]} (allocated on first use) and
+ * are marked by the {@link #NUMERIC} sentinel in {@code values}, so counters are
+ * read, compared and rewritten without parsing or allocating strings.
+ */
+class VersionChain extends FieldHistory {
+
+    /** Identity marker: the version's value is in {@code numbers}. */
+    private static final String NUMERIC = new String("<numeric>");
+
+    private int[] timestamps = new int[2];
+    private int[] expiries = new int[2];
+    private String[] values = new String[2];
+    private long[] numbers;
+    private int size;
+    private boolean ordered = true;
+
+    /**
+     * Appends a version. When the arrays are full, versions invisible to every read
+     * at or after {@code horizon} are compacted away first, and the arrays only grow
+     * if that frees too little.
+     */
+    void append(int timestamp, String value, int expiry, int horizon) {
+        int i = slot(timestamp, expiry, horizon);
+        values[i] = value;
+    }
+
+    /** Appends a numeric version; see {@link #append}. */
+    void appendNumber(int timestamp, long value, int expiry, int horizon) {
+        int i = slot(timestamp, expiry, horizon);
+        if (numbers == null) {
+            numbers = new long[timestamps.length];
+        }
+        numbers[i] = value;
+        values[i] = NUMERIC;
+    }
+
+    @Override
+    String valueAt(int timestamp) {
+        int i = indexAt(timestamp);
+        if (i < 0) return null;
+        return values[i] == NUMERIC ? Long.toString(numbers[i]) : values[i];
+    }
+
+    /**
+     * Index of the version visible at {@code timestamp} (possibly a delete tombstone),
+     * or -1 when none is.
+     */
+    int indexAt(int timestamp) {
+        int i = ordered ? lastAtOrBefore(timestamp) : size - 1;
+        for (; i >= 0; i--) {
+            if (timestamps[i] <= timestamp && timestamp < expiries[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Drops versions no read at or after {@code horizon} can return: those expired
+     * by then, and everything appended before the newest non-expiring version
+     * written at or before it (including delete tombstones), which shadows them all.
+     */
+    void compact(int horizon) {
+        int keepFrom = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (timestamps[i] <= horizon && expiries[i] == Integer.MAX_VALUE) {
+                keepFrom = i;
+                break;
+            }
+        }
+
+        int kept = 0;
+        boolean stillOrdered = true;
+        for (int i = keepFrom; i < size; i++) {
+            if (expiries[i] <= horizon) continue;
+            if (kept > 0 && timestamps[i] < timestamps[kept - 1]) stillOrdered = false;
+            timestamps[kept] = timestamps[i];
+            expiries[kept] = expiries[i];
+            values[kept] = values[i];
+            if (numbers != null) numbers[kept] = numbers[i];
+            kept++;
+        }
+        Arrays.fill(values, kept, size, null);
+        size = kept;
+        ordered = stillOrdered;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int timestamp(int i) {
+        return timestamps[i];
+    }
+
+    int expiry(int i) {
+        return expiries[i];
+    }
+
+    /** String value of version {@code i}; only meaningful when {@link #isNumber} is false. */
+    String value(int i) {
+        return values[i];
+    }
+
+    boolean isNumber(int i) {
+        return values[i] == NUMERIC;
+    }
+
+    long number(int i) {
+        return numbers[i];
+    }
+
+    /** True when every read at or after {@code horizon} sees nothing, so the field can be dropped. */
+    boolean isDeadAfter(int horizon) {
+        if (size == 0) return true;
+        return size == 1 && values[0] == null && expiries[0] == Integer.MAX_VALUE && timestamps[0] <= horizon;
+    }
+
+    /** Claims the next slot for a version, compacting or growing first when full. */
+    private int slot(int timestamp, int expiry, int horizon) {
+        if (size == timestamps.length) {
+            compact(horizon);
+            if (size > timestamps.length / 2) {
+                int capacity = timestamps.length * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                expiries = Arrays.copyOf(expiries, capacity);
+                values = Arrays.copyOf(values, capacity);
+                if (numbers != null) numbers = Arrays.copyOf(numbers, capacity);
+            }
+        }
+
+        if (size > 0 && timestamp < timestamps[size - 1]) {
+            ordered = false;
+        }
+        timestamps[size] = timestamp;
+        expiries[size] = expiry;
+        return size++;
+    }
+
+    /** Index of the newest version with timestamp ≤ {@code timestamp}, or -1. */
+    private int lastAtOrBefore(int timestamp) {
+        int lo = 0;
+        int hi = size - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] <= timestamp) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,379 @@
+package lld.machinecoding.inmemorydatabase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of version writes, plus the snapshot file that lets
+ * recovery skip the log prefix it covers.
+ *
+ * Every mutation of {@link InMemoryDB} ends in a single version append, so one
+ * record type is enough:
+ * <pre>
+ *   int payloadLength, int crc32(payload)
+ *   payload: int timestamp, int expiry, str key, str field, value
+ *   str   = int len, UTF-8 bytes
+ *   value = str | int -1 (delete) | int -2, long (numeric value)
+ * </pre>
+ * Logs are numbered generations ({@code wal-<gen>.log}). A snapshot records the
+ * last generation it contains, so recovery loads the snapshot and replays only
+ * later generations. A torn or corrupt record at the tail of the last log marks
+ * the end of durable history and is truncated away; earlier logs were committed
+ * in full before rotation, so damage in any of them fails recovery instead.
+ */
+class WriteAheadLog implements AutoCloseable {
+
+    /** Receives replayed writes in their original order. */
+    interface Replayer {
+        void apply(int timestamp, String key, String field, String value, int expiry);
+
+        void applyNumber(int timestamp, String key, String field, long value, int expiry);
+    }
+
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final long SNAPSHOT_MAGIC = 0x494d44425f534e50L;   // "IMDB_SNP"
+    private static final int RECORD_HEADER = 8;
+    private static final int NULL_VALUE = -1;
+    private static final int NUMERIC_VALUE = -2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final PersistenceOptions options;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long generation;
+    private int pending;
+
+    private WriteAheadLog(Path directory, PersistenceOptions options, long generation) {
+        this.directory = directory;
+        this.options = options;
+        this.generation = generation;
+        this.channel = openLog(generation);
+    }
+
+    /**
+     * Replays the snapshot and every later log in {@code directory} into
+     * {@code replayer}, then returns a log ready to append to.
+     */
+    static WriteAheadLog recover(Path directory, PersistenceOptions options, Replayer replayer) {
+        try {
+            Files.createDirectories(directory);
+            long covered = readSnapshot(directory.resolve(SNAPSHOT_FILE), replayer);
+
+            List<Long> generations = logGenerations(directory);
+            long newest = generations.isEmpty() ? covered : generations.get(generations.size() - 1);
+            long last = covered;
+            for (long gen : generations) {
+                if (gen <= covered) {
+                    Files.delete(logPath(directory, gen));   // left behind by a crash mid-snapshot
+                    continue;
+                }
+                replayLog(logPath(directory, gen), replayer, gen == newest);
+                last = gen;
+            }
+            return new WriteAheadLog(directory, options, last == covered ? covered + 1 : last);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Buffers one write; writes out (and optionally fsyncs) once a group is full. */
+    void append(int timestamp, String key, String field, String value, int expiry) {
+        try {
+            encodeInto(channel, buffer, timestamp, key, field, value, 0, false, expiry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        afterAppend();
+    }
+
+    /** Like {@link #append}, for a numeric value. */
+    void appendNumber(int timestamp, String key, String field, long value, int expiry) {
+        try {
+            encodeInto(channel, buffer, timestamp, key, field, null, value, true, expiry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        afterAppend();
+    }
+
+    private void afterAppend() {
+        if (++pending >= options.groupCommitSize) {
+            commit();
+        }
+    }
+
+    /** Writes out buffered records and fsyncs them if configured. */
+    void commit() {
+        flush();
+        if (options.fsync) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        pending = 0;
+    }
+
+    /**
+     * Starts a new log generation and returns the one just closed; a snapshot
+     * written next covers everything up to and including it.
+     */
+    long rotate() {
+        commit();
+        long closed = generation;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        generation++;
+        channel = openLog(generation);
+        return closed;
+    }
+
+    /**
+     * Atomically replaces the snapshot with {@code writes} (which must cover every
+     * generation up to {@code coveredGeneration}) and deletes the logs it covers.
+     */
+    void writeSnapshot(long coveredGeneration, SnapshotSource writes) {
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            header.putLong(SNAPSHOT_MAGIC).putLong(coveredGeneration).flip();
+            writeFully(out, header);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            writes.forEachWrite(new Replayer() {
+                @Override
+                public void apply(int timestamp, String key, String field, String value, int expiry) {
+                    try {
+                        encodeInto(out, chunk, timestamp, key, field, value, 0, false, expiry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void applyNumber(int timestamp, String key, String field, long value, int expiry) {
+                    try {
+                        encodeInto(out, chunk, timestamp, key, field, null, value, true, expiry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            chunk.flip();
+            writeFully(out, chunk);
+            out.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Files.move(tmp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (long gen : logGenerations(directory)) {
+                if (gen <= coveredGeneration) {
+                    Files.delete(logPath(directory, gen));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Full database state, emitted as the version writes that rebuild it. */
+    interface SnapshotSource {
+        void forEachWrite(Replayer sink);
+    }
+
+    @Override
+    public void close() {
+        commit();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---------------- Encoding ----------------
+
+    /**
+     * Encodes one record straight into {@code buffer}, first draining the buffer to
+     * {@code out} if the record does not fit. Records larger than the whole buffer
+     * get a one-off heap buffer. {@code number} is written instead of {@code value}
+     * when {@code numeric} is set.
+     */
+    private void encodeInto(FileChannel out, ByteBuffer buffer, int timestamp, String key, String field,
+                            String value, long number, boolean numeric, int expiry) throws IOException {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] f = field.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        int payload = 4 + 4 + (4 + k.length) + (4 + f.length) + 4 + (numeric ? 8 : v == null ? 0 : v.length);
+
+        ByteBuffer target = buffer;
+        if (RECORD_HEADER + payload > buffer.remaining()) {
+            buffer.flip();
+            writeFully(out, buffer);
+            buffer.clear();
+            if (RECORD_HEADER + payload > buffer.capacity()) {
+                target = ByteBuffer.allocate(RECORD_HEADER + payload);
+            }
+        }
+
+        int start = target.position();
+        target.putInt(payload).putInt(0)
+                .putInt(timestamp).putInt(expiry)
+                .putInt(k.length).put(k)
+                .putInt(f.length).put(f);
+        if (numeric) {
+            target.putInt(NUMERIC_VALUE).putLong(number);
+        } else if (v == null) {
+            target.putInt(NULL_VALUE);
+        } else {
+            target.putInt(v.length).put(v);
+        }
+
+        crc.reset();
+        crc.update(target.slice(start + RECORD_HEADER, payload));
+        target.putInt(start + 4, (int) crc.getValue());
+
+        if (target != buffer) {
+            target.flip();
+            writeFully(out, target);
+        }
+    }
+
+    /** Decodes records until the data ends; returns the offset just past the last intact record. */
+    private static long decodeAll(ByteBuffer data, Replayer replayer) {
+        CRC32 check = new CRC32();
+        while (data.remaining() >= RECORD_HEADER) {
+            int start = data.position();
+            int payload = data.getInt();
+            int expectedCrc = data.getInt();
+            if (payload < 0 || payload > data.remaining()) {
+                return start;
+            }
+
+            check.reset();
+            ByteBuffer body = data.slice(data.position(), payload);
+            check.update(body.duplicate());
+            if ((int) check.getValue() != expectedCrc) {
+                return start;
+            }
+
+            int timestamp = body.getInt();
+            int expiry = body.getInt();
+            String key = readString(body);
+            String field = readString(body);
+            int valueLength = body.getInt(body.position());
+            if (valueLength == NUMERIC_VALUE) {
+                body.getInt();
+                replayer.applyNumber(timestamp, key, field, body.getLong(), expiry);
+            } else {
+                replayer.apply(timestamp, key, field, readString(body), expiry);
+            }
+            data.position(start + RECORD_HEADER + payload);
+        }
+        return data.position();
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---------------- Files ----------------
+
+    private static long readSnapshot(Path path, Replayer replayer) throws IOException {
+        if (!Files.exists(path)) return 0;
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < 16 || data.getLong() != SNAPSHOT_MAGIC) {
+            throw new IllegalStateException(path + " is not an InMemoryDB snapshot");
+        }
+        long covered = data.getLong();
+        decodeAll(data, replayer);
+        return covered;
+    }
+
+    /**
+     * Replays one log. Only the {@code newest} may end in a torn record, since
+     * {@link #rotate()} commits a generation before starting the next; its tail is
+     * truncated there.
+     */
+    private static void replayLog(Path path, Replayer replayer, boolean newest) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        long intact = decodeAll(data, replayer);
+        if (intact < data.limit()) {
+            if (!newest) {
+                throw new IllegalStateException(path + " is corrupt at offset " + intact
+                        + " but is not the newest log");
+            }
+            try (FileChannel log = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                log.truncate(intact);
+            }
+        }
+    }
+
+    private static List<Long> logGenerations(Path directory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path log : logs) {
+                String name = log.getFileName().toString();
+                generations.add(Long.parseLong(name.substring(4, name.length() - 4)));
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private static Path logPath(Path directory, long generation) {
+        return directory.resolve("wal-" + generation + ".log");
+    }
+
+    private FileChannel openLog(long gen) {
+        try {
+            return FileChannel.open(logPath(directory, gen),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            writeFully(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+}
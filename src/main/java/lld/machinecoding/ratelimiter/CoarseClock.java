@@ -0,0 +1,55 @@
+package lld.machinecoding.ratelimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Clock whose reading is cached in a volatile field and refreshed by a background
+ * ticker, so the hot path pays a plain volatile read instead of a {@code nanoTime}
+ * call. Readings lag real time by up to one tick; share one instance across limiters
+ * and {@link #close()} it when done.
+ */
+public class CoarseClock implements MonotonicClock, AutoCloseable {
+
+    private final MonotonicClock source;
+    private final long tickNanos;
+    private final Thread ticker;
+    private volatile long now;
+    private volatile boolean running = true;
+
+    public CoarseClock(long tick, TimeUnit unit) {
+        this(MonotonicClock.system(), tick, unit);
+    }
+
+    public CoarseClock(MonotonicClock source, long tick, TimeUnit unit) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        this.source = source;
+        this.tickNanos = unit.toNanos(tick);
+        this.now = source.nanos();
+
+        ticker = new Thread(this::run, "coarse-clock-ticker");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public long nanos() {
+        return now;
+    }
+
+    /** Stops the ticker; the clock then keeps returning its last reading. */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(tickNanos);
+            now = source.nanos();
+        }
+    }
+}
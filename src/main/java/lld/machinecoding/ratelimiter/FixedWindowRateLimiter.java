@@ -0,0 +1,96 @@
+package lld.machinecoding.ratelimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed window counter per user. One {@link AtomicLong} per user packs
+ * {@code [ window id : 44 | count : 20 ]}, so a window reset and the count it starts
+ * happen in the same CAS. Windows are aligned to multiples of windowMillis on the clock.
+ * The clock never goes negative and a window is at least 1 ms, so ids stay below 2^44
+ * and never wrap.
+ */
+class FixedWindowRateLimiter extends KeyedRateLimiter<AtomicLong> {
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long DEAD = -1L;   // evicted; its window id is past any reachable one
+
+    private final long windowNanos;
+    private final int maxRequests;
+
+    public FixedWindowRateLimiter(int maxRequests, long windowMillis) {
+        this(maxRequests, windowMillis, MonotonicClock.system());
+    }
+
+    /**
+     * @param maxRequests  per user per window, at most 2^20 - 1
+     * @param windowMillis at least 1
+     */
+    public FixedWindowRateLimiter(int maxRequests, long windowMillis, MonotonicClock clock) {
+        super(clock);
+        if (maxRequests < 0 || maxRequests > COUNT_MASK) {
+            throw new IllegalArgumentException("maxRequests must be in [0, " + COUNT_MASK + "]");
+        }
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("windowMillis must be at least 1");
+        }
+        this.maxRequests = maxRequests;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);   // saturates for huge windows
+    }
+
+    @Override
+    long tryAcquire(String userId, int permits) {
+        checkPermits(permits);
+        long window = now();
+        AtomicLong state = stateFor(userId, window);
+
+        while (true) {
+            long cur = state.get();
+            if (cur == DEAD) {
+                state = replaceDead(userId, state, window);
+                continue;
+            }
+            long next;
+            // a stale clock read joins the newer window rather than resetting it
+            if (cur >>> COUNT_BITS >= window) {
+                if ((cur & COUNT_MASK) > maxRequests - permits) return DENIED;   // no write on denial
+                next = cur + permits;
+            } else {
+                if (permits > maxRequests) return DENIED;
+                next = (window << COUNT_BITS) | permits;
+            }
+            if (state.compareAndSet(cur, next)) return next >>> COUNT_BITS;
+        }
+    }
+
+    @Override
+    void release(String userId, int permits, long window) {
+        AtomicLong state = states.get(userId);
+        if (state == null) return;
+
+        while (true) {
+            long cur = state.get();
+            if (cur == DEAD || cur >>> COUNT_BITS != window) return;   // that window is over
+            long next = cur - Math.min(permits, cur & COUNT_MASK);
+            if (state.compareAndSet(cur, next)) return;
+        }
+    }
+
+    @Override
+    long now() {
+        return clock.nanos() / windowNanos;
+    }
+
+    @Override
+    AtomicLong newState(long window) {
+        return new AtomicLong(window << COUNT_BITS);
+    }
+
+    @Override
+    boolean retireIfIdle(AtomicLong state, long window) {
+        long cur = state.get();
+        if (cur == DEAD) return true;
+        // any earlier window is as good as a fresh count
+        return cur >>> COUNT_BITS < window && state.compareAndSet(cur, DEAD);
+    }
+}
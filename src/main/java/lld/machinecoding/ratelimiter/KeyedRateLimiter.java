@@ -0,0 +1,104 @@
+package lld.machinecoding.ratelimiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user state shared by the limiters, with idle-key eviction.
+ *
+ * A user is idle once their state has decayed back to exactly what a new user would
+ * get (window over, bucket full), so evicting it never changes a decision and live
+ * state stays bounded by the users active within one window. Eviction first marks the
+ * state dead under the limiter's own synchronization; a request that raced onto a dead
+ * state looks the user up again via {@link #replaceDead}.
+ *
+ * @param <S> per-user state
+ */
+abstract class KeyedRateLimiter<S> implements RateLimiter {
+
+    /** {@link #tryAcquire} result for a rejected request; real receipts are never negative. */
+    static final long DENIED = -1L;
+
+    final ConcurrentHashMap<String, S> states = new ConcurrentHashMap<>();
+    final MonotonicClock clock;
+    private final LongAdder evictions = new LongAdder();
+
+    KeyedRateLimiter(MonotonicClock clock) {
+        this.clock = clock;
+    }
+
+    /** Current {@link #clock} time in the subclass's own unit (window, bucket or refill tick). */
+    abstract long now();
+
+    /** State for a user first seen at {@code now}. */
+    abstract S newState(long now);
+
+    /** If {@code state} is idle as of {@code now}, marks it dead and returns true. */
+    abstract boolean retireIfIdle(S state, long now);
+
+    /**
+     * Takes {@code permits} for {@code userId} all-or-nothing. Returns {@link #DENIED}, or a
+     * receipt naming where the permits were charged (window, bucket or tick) for {@link #release}.
+     */
+    abstract long tryAcquire(String userId, int permits);
+
+    /**
+     * Gives back permits taken by a successful {@link #tryAcquire}, as far as they still
+     * count against the user; permits whose window has already passed are left alone.
+     */
+    abstract void release(String userId, int permits, long receipt);
+
+    @Override
+    public boolean allowRequests(String userId, int permits) {
+        return tryAcquire(userId, permits) != DENIED;
+    }
+
+    static void checkPermits(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be at least 1");
+        }
+    }
+
+    final S stateFor(String userId, long now) {
+        S state = states.get(userId);
+        return state != null ? state : states.computeIfAbsent(userId, k -> newState(now));
+    }
+
+    /** Unlinks {@code dead} (if the sweeper has not already) and returns the user's live state. */
+    final S replaceDead(String userId, S dead, long now) {
+        states.remove(userId, dead);
+        return stateFor(userId, now);
+    }
+
+    /** One sweep over all users; returns how many idle ones were evicted. */
+    public int evictIdle() {
+        long now = now();
+        int evicted = 0;
+        for (Map.Entry<String, S> e : states.entrySet()) {
+            if (retireIfIdle(e.getValue(), now) && states.remove(e.getKey(), e.getValue())) {
+                evicted++;
+            }
+        }
+        evictions.add(evicted);
+        return evicted;
+    }
+
+    /** Runs {@link #evictIdle} every {@code period} on {@code scheduler}, which may be shared across limiters. */
+    public ScheduledFuture<?> sweepEvery(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(this::evictIdle, period, period, unit);
+    }
+
+    /** Users currently holding state. */
+    public int liveKeys() {
+        return states.size();
+    }
+
+    /** Users evicted since creation. */
+    public long evictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,23 @@
+package lld.machinecoding.ratelimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Clock that only moves when told to, for deterministic tests, demos and benchmarks. */
+public class ManualClock implements MonotonicClock {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Override
+    public long nanos() {
+        return now.get();
+    }
+
+    /** Moves the clock forward by {@code amount}; returns the new reading. */
+    public long advance(long amount, TimeUnit unit) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("a monotonic clock cannot move backwards");
+        }
+        return now.addAndGet(unit.toNanos(amount));
+    }
+}
@@ -0,0 +1,27 @@
+package lld.machinecoding.ratelimiter;
+
+/**
+ * Time source for the rate limiters: nanoseconds since a fixed origin, never negative
+ * and never going backwards (unlike {@code System.currentTimeMillis()}).
+ */
+public interface MonotonicClock {
+    long nanos();
+
+    /** {@code System.nanoTime()}, rebased so that it starts at 0 when the clock class loads. */
+    static MonotonicClock system() {
+        return SystemClock.INSTANCE;
+    }
+}
+
+final class SystemClock implements MonotonicClock {
+    static final SystemClock INSTANCE = new SystemClock();
+    private static final long ORIGIN = System.nanoTime();
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long nanos() {
+        return System.nanoTime() - ORIGIN;
+    }
+}
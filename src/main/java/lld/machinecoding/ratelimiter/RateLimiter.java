@@ -1,5 +1,25 @@
 package lld.machinecoding.ratelimiter;
 
 public interface RateLimiter {
-    boolean allowRequest(String userId);
-}
\ No newline at end of file
+    default boolean allowRequest(String userId) {
+        return allowRequests(userId, 1);
+    }
+
+    /** Admits all {@code permits} (at least 1) for {@code userId} or none of them, resolving the user once. */
+    boolean allowRequests(String userId, int permits);
+
+    /**
+     * Batch form of {@link #allowRequests(String, int)}: entry i asks for {@code permits[i]}
+     * for {@code userIds[i]}, and each entry is admitted or rejected on its own, in order.
+     */
+    default boolean[] allowRequests(String[] userIds, int[] permits) {
+        if (userIds.length != permits.length) {
+            throw new IllegalArgumentException("userIds and permits must have the same length");
+        }
+        boolean[] admitted = new boolean[userIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            admitted[i] = allowRequests(userIds[i], permits[i]);
+        }
+        return admitted;
+    }
+}
@@ -1,110 +1,58 @@
 package lld.machinecoding.ratelimiter;
-// RateLimiter.java
-import java.util.*;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-
-// FixedWindowRateLimiter.java
-class FixedWindowRateLimiter implements RateLimiter {
-    private final long windowMillis;
-    private final int maxRequests;
-    private final ConcurrentHashMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> windowStart = new ConcurrentHashMap<>();
-
-    public FixedWindowRateLimiter(int maxRequests, long windowMillis) {
-        this.maxRequests = maxRequests;
-        this.windowMillis = windowMillis;
-    }
-
-    @Override
-    public boolean allowRequest(String userId) {
-        long now = System.currentTimeMillis();
-        windowStart.compute(userId, (k, start) -> {
-            if (start == null || now - start >= windowMillis) {
-                counts.put(userId, new AtomicInteger(0));
-                return now;
-            }
-            return start;
-        });
-        AtomicInteger cnt = counts.computeIfAbsent(userId, k -> new AtomicInteger(0));
-        int cur = cnt.incrementAndGet();
-        return cur <= maxRequests;
-    }
-}
-
-// SlidingWindowRateLimiter.java (approximation using buckets)
-class SlidingWindowRateLimiter implements RateLimiter {
-    private final int maxRequests;
-    private final long windowMillis;
-    private final int numBuckets;
-    private final long bucketSizeMillis;
-    // userId -> buckets array + lastAccessTime
-    private final ConcurrentHashMap<String, UserBuckets> map = new ConcurrentHashMap<>();
-
-    static class UserBuckets {
-        final long[] buckets;
-        long startTime;
-        UserBuckets(int n, long startTime) { buckets = new long[n]; this.startTime = startTime; }
-    }
-
-    public SlidingWindowRateLimiter(int maxRequests, long windowMillis, int numBuckets) {
-        this.maxRequests = maxRequests;
-        this.windowMillis = windowMillis;
-        this.numBuckets = numBuckets;
-        this.bucketSizeMillis = windowMillis / numBuckets;
-    }
-
-    @Override
-    public boolean allowRequest(String userId) {
-        long now = System.currentTimeMillis();
-        UserBuckets ub = map.computeIfAbsent(userId, k -> new UserBuckets(numBuckets, now));
-        synchronized (ub) {
-            // advance buckets if needed
-            long elapsed = now - ub.startTime;
-            if (elapsed >= windowMillis) {
-                Arrays.fill(ub.buckets, 0);
-                ub.startTime = now;
-            } else if (elapsed >= bucketSizeMillis) {
-                int shift = (int)(elapsed / bucketSizeMillis);
-                shiftBuckets(ub.buckets, shift);
-                ub.startTime += shift * bucketSizeMillis;
-            }
-            // add to current bucket
-            int idx = (int)((now - ub.startTime) / bucketSizeMillis) % numBuckets;
-            ub.buckets[idx]++;
-            long sum = 0;
-            for (long v : ub.buckets) sum += v;
-            return sum <= maxRequests;
-        }
-    }
 
-    private void shiftBuckets(long[] buckets, int shift) {
-        if (shift >= buckets.length) {
-            Arrays.fill(buckets, 0);
-            return;
-        }
-        long[] temp = new long[buckets.length];
-        for (int i = 0; i < buckets.length; i++) {
-            int newIdx = (i - shift + buckets.length) % buckets.length;
-            temp[newIdx] = buckets[i];
-        }
-        System.arraycopy(temp, 0, buckets, 0, buckets.length);
-        // zero out newly exposed buckets
-        for (int i = 0; i < shift; i++) {
-            int idx = (buckets.length - 1 - i + buckets.length) % buckets.length;
-            buckets[idx] = 0;
-        }
-    }
-}
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // Quick main to demo
 class RateLimiterDemo {
     public static void main(String[] args) throws Exception {
-        RateLimiter rl = new SlidingWindowRateLimiter(5, 10_000, 5);
+        ManualClock clock = new ManualClock();
+        RateLimiter rl = new SlidingWindowRateLimiter(5, 10_000, 5, clock);
         String u = "user1";
         for (int i = 0; i < 8; i++) {
             System.out.println(i + " -> " + rl.allowRequest(u));
-            Thread.sleep(600);
+            clock.advance(600, TimeUnit.MILLISECONDS);
+        }
+
+        // a window no run can cross, so the exact count is deterministic
+        stressCheck(new FixedWindowRateLimiter(1_000, Long.MAX_VALUE), 1_000);
+        stressCheck(new SlidingWindowRateLimiter(1_000, Long.MAX_VALUE, 10), 1_000);
+    }
+
+    /**
+     * Hammers one user from many threads within a single window and checks that exactly
+     * {@code expected} requests got through (the old two-map version over-admitted here).
+     */
+    static void stressCheck(RateLimiter rl, int expected) throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < expected; i++) {
+                    if (rl.allowRequest("hot-user")) admitted.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> w : workers) w.get();
+        pool.shutdown();
+
+        System.out.println(rl.getClass().getSimpleName() + " admitted " + admitted.get() + " of "
+                + (long) threads * expected + " (limit " + expected + ")");
+        if (admitted.get() != expected) {
+            throw new IllegalStateException("expected exactly " + expected + " admissions, got " + admitted.get());
         }
     }
 }
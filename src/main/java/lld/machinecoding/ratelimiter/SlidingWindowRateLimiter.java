@@ -0,0 +1,114 @@
+package lld.machinecoding.ratelimiter;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding window approximated with buckets. Each user has a ring of numBuckets slots
+ * plus their running total. Advancing the window zeroes just the slots that fell out of
+ * it, so admission is O(1) and allocation-free.
+ */
+class SlidingWindowRateLimiter extends KeyedRateLimiter<SlidingWindowRateLimiter.UserBuckets> {
+    private final int maxRequests;
+    private final int numBuckets;
+    private final long bucketNanos;
+
+    static class UserBuckets {
+        final long[] buckets;
+        long total;        // sum of buckets
+        long headBucket;   // absolute bucket number (clock nanos / bucketNanos) of the newest slot
+        boolean dead;      // evicted; requests must look the user up again
+
+        UserBuckets(int n, long headBucket) {
+            buckets = new long[n];
+            this.headBucket = headBucket;
+        }
+
+        /** Moves the head forward to {@code bucket}, expiring the slots it passes over. */
+        void advanceTo(long bucket) {
+            long gap = bucket - headBucket;
+            if (gap <= 0) return;   // same bucket, or a stale clock read: count into the head
+
+            if (gap >= buckets.length) {
+                Arrays.fill(buckets, 0);
+                total = 0;
+            } else {
+                for (long b = headBucket + 1; b <= bucket; b++) {
+                    int idx = (int) (b % buckets.length);
+                    total -= buckets[idx];
+                    buckets[idx] = 0;
+                }
+            }
+            headBucket = bucket;
+        }
+    }
+
+    public SlidingWindowRateLimiter(int maxRequests, long windowMillis, int numBuckets) {
+        this(maxRequests, windowMillis, numBuckets, MonotonicClock.system());
+    }
+
+    public SlidingWindowRateLimiter(int maxRequests, long windowMillis, int numBuckets, MonotonicClock clock) {
+        super(clock);
+        if (numBuckets < 1 || windowMillis < numBuckets) {
+            throw new IllegalArgumentException("need 1 <= numBuckets <= windowMillis");
+        }
+        this.maxRequests = maxRequests;
+        this.numBuckets = numBuckets;
+        this.bucketNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis / numBuckets);
+    }
+
+    @Override
+    long tryAcquire(String userId, int permits) {
+        checkPermits(permits);
+        long bucket = now();
+        UserBuckets ub = stateFor(userId, bucket);
+
+        while (true) {
+            synchronized (ub) {
+                if (!ub.dead) {
+                    ub.advanceTo(bucket);
+                    if (ub.total > maxRequests - permits) return DENIED;
+                    ub.buckets[(int) (ub.headBucket % numBuckets)] += permits;
+                    ub.total += permits;
+                    return ub.headBucket;
+                }
+            }
+            ub = replaceDead(userId, ub, bucket);
+        }
+    }
+
+    @Override
+    void release(String userId, int permits, long bucket) {
+        UserBuckets ub = states.get(userId);
+        if (ub == null) return;
+
+        synchronized (ub) {
+            if (ub.dead || ub.headBucket - bucket >= numBuckets) return;   // slot already expired
+            int idx = (int) (bucket % numBuckets);
+            long back = Math.min(permits, ub.buckets[idx]);
+            ub.buckets[idx] -= back;
+            ub.total -= back;
+        }
+    }
+
+    @Override
+    long now() {
+        return clock.nanos() / bucketNanos;
+    }
+
+    @Override
+    UserBuckets newState(long bucket) {
+        return new UserBuckets(numBuckets, bucket);
+    }
+
+    @Override
+    boolean retireIfIdle(UserBuckets ub, long bucket) {
+        synchronized (ub) {
+            // every slot has left the window, so the ring is all zeros again
+            if (!ub.dead && bucket - ub.headBucket >= numBuckets) {
+                ub.dead = true;
+            }
+            return ub.dead;
+        }
+    }
+}
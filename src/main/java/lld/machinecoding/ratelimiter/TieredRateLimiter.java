@@ -0,0 +1,67 @@
+package lld.machinecoding.ratelimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Evaluates several limiter tiers (for example per-user, per-tenant and global) as one
+ * decision: permits are reserved tier by tier, and if any tier rejects, the tiers already
+ * reserved are rolled back, so a request is charged to all tiers or to none.
+ *
+ * The composite itself holds no locks and allocates nothing per call; the common,
+ * all-admit path costs one reservation per tier. While a reservation is being rolled
+ * back, other requests may briefly see those permits as taken.
+ */
+class TieredRateLimiter implements RateLimiter {
+
+    private final KeyedRateLimiter<?>[] limiters;
+    private final List<Function<String, String>> keys;
+
+    private TieredRateLimiter(Builder b) {
+        this.limiters = b.limiters.toArray(new KeyedRateLimiter<?>[0]);
+        this.keys = new ArrayList<>(b.keys);
+    }
+
+    @Override
+    public boolean allowRequests(String userId, int permits) {
+        KeyedRateLimiter.checkPermits(permits);
+        return reserveFrom(0, userId, permits);
+    }
+
+    /** Reserves tiers {@code tier..n-1}; on failure, releases whatever this frame reserved. */
+    private boolean reserveFrom(int tier, String userId, int permits) {
+        if (tier == limiters.length) return true;
+
+        String key = keys.get(tier).apply(userId);
+        long receipt = limiters[tier].tryAcquire(key, permits);
+        if (receipt == KeyedRateLimiter.DENIED) return false;
+
+        if (reserveFrom(tier + 1, userId, permits)) return true;
+        limiters[tier].release(key, permits, receipt);
+        return false;
+    }
+
+    /**
+     * Tiers are checked in the order added; put the one that rejects most often (usually
+     * the narrowest) first, since a rejection there needs no rollback.
+     */
+    public static class Builder {
+        private final List<KeyedRateLimiter<?>> limiters = new ArrayList<>();
+        private final List<Function<String, String>> keys = new ArrayList<>();
+
+        /** Adds a tier that charges {@code limiter} under the key {@code keyFor} maps the user to. */
+        public Builder tier(KeyedRateLimiter<?> limiter, Function<String, String> keyFor) {
+            limiters.add(limiter);
+            keys.add(keyFor);
+            return this;
+        }
+
+        public TieredRateLimiter build() {
+            if (limiters.isEmpty()) {
+                throw new IllegalArgumentException("at least one tier is required");
+            }
+            return new TieredRateLimiter(this);
+        }
+    }
+}
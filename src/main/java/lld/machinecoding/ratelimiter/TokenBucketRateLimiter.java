@@ -0,0 +1,100 @@
+package lld.machinecoding.ratelimiter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per user, kept in a single {@link AtomicLong} and updated by CAS, so
+ * {@code allowRequest} neither locks nor allocates once a user has been seen.
+ *
+ * Time is counted in refill ticks (the interval that mints one token) on the limiter's
+ * clock. Instead of a token count and its last refill tick, the state is the tick at
+ * which the bucket is full again: at tick {@code now} it holds
+ * {@code capacity - max(0, fullAt - now)} tokens, and taking a token moves
+ * {@code fullAt} one tick later, so refilling needs no write at all. The clock is never
+ * negative, so ticks are plain longs that never wrap however long a bucket sits idle.
+ * Buckets that have refilled completely are evictable ({@link KeyedRateLimiter}).
+ */
+class TokenBucketRateLimiter extends KeyedRateLimiter<AtomicLong> {
+
+    private static final long DEAD = -1L;   // evicted; fullAt is never negative
+
+    private final int capacity;
+    private final long nanosPerToken;
+
+    /**
+     * @param capacity        burst size, at least 1
+     * @param tokensPerSecond sustained rate, at most one token per nanosecond
+     */
+    public TokenBucketRateLimiter(int capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, MonotonicClock.system());
+    }
+
+    public TokenBucketRateLimiter(int capacity, double tokensPerSecond, MonotonicClock clock) {
+        super(clock);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        long interval = Math.round(1_000_000_000d / tokensPerSecond);
+        if (!(tokensPerSecond > 0) || interval < 1) {
+            throw new IllegalArgumentException("tokensPerSecond must be in (0, 1e9]");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = interval;
+    }
+
+    @Override
+    long tryAcquire(String userId, int permits) {
+        checkPermits(permits);
+        long now = now();
+        AtomicLong state = stateFor(userId, now);
+
+        while (true) {
+            long fullAt = state.get();
+            if (fullAt == DEAD) {
+                state = replaceDead(userId, state, now);
+                continue;
+            }
+
+            // a full bucket counts from now; a stale clock read only makes the deficit look larger
+            long from = Math.max(fullAt, now);
+            if (from - now > (long) capacity - permits) {
+                return DENIED;   // no write: the refill is recomputed from the same tick next time
+            }
+            long next = from + permits;
+            if (state.compareAndSet(fullAt, next)) {
+                return next;
+            }
+        }
+    }
+
+    /** Tokens go straight back into the bucket (capped at capacity); the receipt is not needed. */
+    @Override
+    void release(String userId, int permits, long receipt) {
+        AtomicLong state = states.get(userId);
+        if (state == null) return;
+
+        while (true) {
+            long fullAt = state.get();
+            if (fullAt == DEAD) return;   // evicted buckets are full anyway
+            // any fullAt at or before the current tick already reads as full
+            if (state.compareAndSet(fullAt, Math.max(0, fullAt - permits))) return;
+        }
+    }
+
+    @Override
+    long now() {
+        return clock.nanos() / nanosPerToken;
+    }
+
+    @Override
+    AtomicLong newState(long now) {
+        return new AtomicLong(now);
+    }
+
+    @Override
+    boolean retireIfIdle(AtomicLong state, long now) {
+        long fullAt = state.get();
+        if (fullAt == DEAD) return true;
+        return fullAt <= now && state.compareAndSet(fullAt, DEAD);
+    }
+}
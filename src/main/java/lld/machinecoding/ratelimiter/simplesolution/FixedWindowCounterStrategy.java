@@ -1,12 +1,14 @@
 package lld.machinecoding.ratelimiter.simplesolution;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 class FixedWindowCounterStrategy implements RateLimitStrategy {
 
-    private int maxRequests;
-    private int windowSize;
+    private final int maxRequests;
+    private final int windowSize;
 
-    private int currentWindowStart = -1;
-    private int count = 0;
+    // [ window start : 32 | count : 32 ], replaced by CAS so a reset and its first count are one step
+    private final AtomicLong state = new AtomicLong(pack(Integer.MIN_VALUE, 0));
 
     FixedWindowCounterStrategy(int maxRequests, int windowSize) {
         this.maxRequests = maxRequests;
@@ -18,16 +20,28 @@ class FixedWindowCounterStrategy implements RateLimitStrategy {
 
         int windowStart = (timestamp / windowSize) * windowSize;
 
-        if (windowStart != currentWindowStart) {
-            currentWindowStart = windowStart;
-            count = 0;
+        while (true) {
+            long cur = state.get();
+            int currentWindowStart = (int) (cur >> 32);
+            int count = (int) cur;
+
+            // the window only moves forward: a caller that read an older clock joins the
+            // current window instead of resetting it under callers already past the boundary
+            if (windowStart > currentWindowStart) {
+                currentWindowStart = windowStart;
+                count = 0;
+            }
+
+            if (count >= maxRequests) {
+                return false;
+            }
+            if (state.compareAndSet(cur, pack(currentWindowStart, count + 1))) {
+                return true;
+            }
         }
+    }
 
-        if (count < maxRequests) {
-            count++;
-            return true;
-        }
-        return false;
+    private static long pack(int windowStart, int count) {
+        return ((long) windowStart << 32) | (count & 0xFFFFFFFFL);
     }
 }
-
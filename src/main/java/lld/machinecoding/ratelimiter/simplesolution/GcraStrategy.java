@@ -0,0 +1,45 @@
+package lld.machinecoding.ratelimiter.simplesolution;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generic cell rate algorithm: the whole state is one "theoretical arrival time" (TAT).
+ * Admits bursts of up to maxRequests and a sustained maxRequests per windowSize, in
+ * O(1) time and memory per resource. Like a token bucket (and unlike the sliding log),
+ * a window straddling a burst can see up to 2 * maxRequests - 1 admissions.
+ *
+ * Times are scaled by maxRequests so the emission interval (windowSize / maxRequests)
+ * stays an exact integer: each admission pushes the TAT forward by windowSize.
+ */
+class GcraStrategy implements RateLimitStrategy {
+
+    private final int maxRequests;
+    private final long emissionInterval;   // windowSize, in scaled units
+    private final long burstTolerance;     // (maxRequests - 1) emission intervals
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    GcraStrategy(int maxRequests, int windowSize) {
+        this.maxRequests = maxRequests;
+        this.emissionInterval = windowSize;
+        this.burstTolerance = (long) (maxRequests - 1) * windowSize;
+    }
+
+    @Override
+    public boolean isAllowed(int timestamp) {
+
+        long now = (long) timestamp * maxRequests;
+
+        while (true) {
+            long cur = theoreticalArrival.get();
+            long tat = Math.max(cur, now);
+
+            if (tat - now > burstTolerance) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(cur, tat + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+}
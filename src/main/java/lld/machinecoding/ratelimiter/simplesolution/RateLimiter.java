@@ -1,10 +1,13 @@
 package lld.machinecoding.ratelimiter.simplesolution;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Safe for concurrent use: strategies are thread-safe, and addResource publishes a replacement
+// atomically while calls already holding the old strategy finish on it.
 public class RateLimiter {
 
-    private Map<String, RateLimitStrategy> resourceStrategies = new HashMap<>();
+    private final Map<String, RateLimitStrategy> resourceStrategies = new ConcurrentHashMap<>();
 
     // ---------------- addResource ----------------
     public void addResource(String resourceId, String strategy, String limits) {
@@ -23,6 +26,10 @@ public class RateLimiter {
             rateLimitStrategy =
                     new SlidingWindowCounterStrategy(maxRequests, timePeriod);
 
+        } else if (strategy.equals("gcra")) {
+            rateLimitStrategy =
+                    new GcraStrategy(maxRequests, timePeriod);
+
         } else {
             throw new IllegalArgumentException("Unknown strategy");
         }
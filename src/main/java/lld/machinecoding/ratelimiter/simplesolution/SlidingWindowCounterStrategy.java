@@ -1,32 +1,57 @@
 package lld.machinecoding.ratelimiter.simplesolution;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-
 class SlidingWindowCounterStrategy implements RateLimitStrategy {
 
-    private int maxRequests;
-    private int windowSize;
-    private Deque<Integer> timestamps = new ArrayDeque<>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxRequests;
+    private final int windowSize;
+
+    // last maxRequests admitted timestamps, oldest at head: a request fits iff fewer than
+    // maxRequests were admitted or the oldest of them has left the window. The ring doubles
+    // as requests are admitted, so a large quota only costs memory once it is used.
+    private int[] admitted;
+    private int head;
+    private int size;
 
     SlidingWindowCounterStrategy(int maxRequests, int windowSize) {
         this.maxRequests = maxRequests;
         this.windowSize = windowSize;
+        this.admitted = new int[Math.max(0, Math.min(maxRequests, INITIAL_CAPACITY))];
     }
 
     @Override
-    public boolean isAllowed(int timestamp) {
+    public synchronized boolean isAllowed(int timestamp) {
+
+        if (maxRequests <= 0) {
+            return false;   // a zero quota admits nothing and leaves no ring to index
+        }
 
         int windowStart = timestamp - windowSize + 1;
 
-        while (!timestamps.isEmpty() && timestamps.peekFirst() < windowStart) {
-            timestamps.pollFirst();
+        if (size < maxRequests) {
+            if (size == admitted.length) {
+                grow();
+            }
+            admitted[(head + size) % admitted.length] = timestamp;
+            size++;
+            return true;
         }
-
-        if (timestamps.size() < maxRequests) {
-            timestamps.addLast(timestamp);
+        if (admitted[head] < windowStart) {
+            admitted[head] = timestamp;
+            head = (head + 1) % admitted.length;
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /** Doubles the ring, capped at maxRequests, unrolling it so the oldest entry is at 0. */
+    private void grow() {
+        int[] grown = new int[(int) Math.min(maxRequests, 2L * admitted.length)];
+        for (int i = 0; i < size; i++) {
+            grown[i] = admitted[(head + i) % admitted.length];
+        }
+        admitted = grown;
+        head = 0;
+    }
+}